@@ -0,0 +1,72 @@
+package com.back.simpleDb;
+
+import com.back.model.Article;
+import java.sql.Connection;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingBenchmark {
+
+  private static final String[] LABELS =
+      {"id", "createdDate", "modifiedDate", "title", "body", "isBlind"};
+
+  @Param({"1", "100", "10000"})
+  private int rowCnt;
+
+  private Connection conn;
+
+  @Setup
+  public void setup() {
+    List<Object[]> rows = new ArrayList<>(rowCnt);
+    LocalDateTime now = LocalDateTime.now();
+
+    for (int i = 1; i <= rowCnt; i++) {
+      rows.add(new Object[]{(long) i, now, now, "제목" + i, "내용" + i, i % 2 == 0});
+    }
+
+    conn = StubJdbc.connection(LABELS, rows);
+  }
+
+  @Benchmark
+  public List<Map<String, Object>> selectRows() {
+    return new Sql(conn)
+        .append("SELECT * FROM article")
+        .selectRows();
+  }
+
+  @Benchmark
+  public List<Article> selectRowsArticle() {
+    return new Sql(conn)
+        .append("SELECT * FROM article")
+        .selectRows(Article.class);
+  }
+
+  @Benchmark
+  public int bindParameters() {
+    return new Sql(conn)
+        .append("UPDATE article")
+        .append("SET title = ?, body = ?, isBlind = ?", "제목", "내용", false)
+        .appendIn("WHERE id IN (?)", 1, 2, 3, 4, 5, 6, 7, 8, 9, 10)
+        .update();
+  }
+}
@@ -0,0 +1,103 @@
+package com.back.simpleDb;
+
+import com.back.model.Article;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MySqlBenchmark {
+
+  private static final int ARTICLE_CNT = 1_000;
+
+  private SimpleDb simpleDb;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    simpleDb = new SimpleDb(
+        System.getProperty("simpleDb.host", "localhost"),
+        System.getProperty("simpleDb.user", "root"),
+        System.getProperty("simpleDb.password", "lldj123414"),
+        System.getProperty("simpleDb.dbName", "simpleDb__test")
+    );
+    simpleDb.setRewriteBatchedStatements(true);
+
+    simpleDb.run("DROP TABLE IF EXISTS article");
+    simpleDb.run("""
+        CREATE TABLE article (
+            id INT UNSIGNED NOT NULL AUTO_INCREMENT,
+            PRIMARY KEY(id),
+            createdDate DATETIME NOT NULL,
+            modifiedDate DATETIME NOT NULL,
+            title VARCHAR(100) NOT NULL,
+            `body` TEXT NOT NULL,
+            isBlind BIT(1) NOT NULL DEFAULT 0
+        )
+        """);
+
+    Batch batch = simpleDb.genBatch("""
+        INSERT INTO article
+        SET createdDate = NOW(),
+        modifiedDate = NOW(),
+        title = ?,
+        `body` = ?,
+        isBlind = ?
+        """);
+    for (int i = 1; i <= ARTICLE_CNT; i++) {
+      batch.add("제목" + i, "내용" + i, i % 2 == 0);
+    }
+    batch.insert();
+    simpleDb.close();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    simpleDb.shutdown();
+  }
+
+  @Benchmark
+  public Article selectRow() {
+    return selectRandomArticle();
+  }
+
+  @Benchmark
+  @Threads(8)
+  public Article selectRowContended() {
+    return selectRandomArticle();
+  }
+
+  @Benchmark
+  public long insert() {
+    return simpleDb.genSql()
+        .append("INSERT INTO article")
+        .append("SET createdDate = NOW()")
+        .append(", modifiedDate = NOW()")
+        .append(", title = ?", "제목 new")
+        .append(", body = ?", "내용 new")
+        .insert();
+  }
+
+  private Article selectRandomArticle() {
+    return simpleDb.genSql()
+        .append("SELECT * FROM article WHERE id = ?",
+            ThreadLocalRandom.current().nextInt(1, ARTICLE_CNT + 1))
+        .selectRow(Article.class);
+  }
+}
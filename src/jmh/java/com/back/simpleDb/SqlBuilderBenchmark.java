@@ -0,0 +1,48 @@
+package com.back.simpleDb;
+
+import java.sql.Connection;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SqlBuilderBenchmark {
+
+  private final Object[] ids = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+  private final QueryTemplate template = new QueryTemplate((Connection) null,
+      "SELECT * FROM article WHERE id IN (?) ORDER BY id DESC");
+
+  @Benchmark
+  public Sql append() {
+    return new Sql((Connection) null)
+        .append("SELECT *")
+        .append("FROM article")
+        .append("WHERE id = ?", 1)
+        .append("ORDER BY id DESC");
+  }
+
+  @Benchmark
+  public Sql appendIn() {
+    return new Sql((Connection) null)
+        .append("SELECT *")
+        .append("FROM article")
+        .appendIn("WHERE id IN (?)", ids);
+  }
+
+  @Benchmark
+  public Sql template() {
+    return template.bind((Object) ids);
+  }
+}
@@ -0,0 +1,89 @@
+package com.back.simpleDb;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+final class StubJdbc {
+
+  private StubJdbc() {
+  }
+
+  static Connection connection(String[] labels, List<Object[]> rows) {
+    return proxy(Connection.class, (method, args) -> switch (method) {
+      case "prepareStatement" -> statement(labels, rows);
+      case "isClosed" -> false;
+      default -> null;
+    });
+  }
+
+  private static PreparedStatement statement(String[] labels, List<Object[]> rows) {
+    return proxy(PreparedStatement.class, (method, args) -> switch (method) {
+      case "executeQuery" -> resultSet(labels, rows);
+      case "executeUpdate" -> rows.size();
+      case "getGeneratedKeys" -> resultSet(new String[]{"GENERATED_KEY"},
+          List.<Object[]>of(new Object[]{1L}));
+      default -> null;
+    });
+  }
+
+  private static ResultSet resultSet(String[] labels, List<Object[]> rows) {
+    ResultSetMetaData meta = proxy(ResultSetMetaData.class, (method, args) -> switch (method) {
+      case "getColumnCount" -> labels.length;
+      case "getColumnLabel", "getColumnName" -> labels[(int) args[0] - 1];
+      default -> null;
+    });
+    int[] cursor = {-1};
+    Object[] last = {null};
+
+    return proxy(ResultSet.class, (method, args) -> {
+      if (method.equals("next"))
+        return ++cursor[0] < rows.size();
+      if (method.equals("getMetaData"))
+        return meta;
+      if (method.equals("wasNull"))
+        return last[0] == null;
+      if (!method.startsWith("get") || args == null || !(args[0] instanceof Integer index))
+        return null;
+
+      Object value = rows.get(cursor[0])[index - 1];
+      last[0] = value;
+
+      return switch (method) {
+        case "getLong" -> value == null ? 0L : ((Number) value).longValue();
+        case "getInt" -> value == null ? 0 : ((Number) value).intValue();
+        case "getBoolean" -> value != null && (Boolean) value;
+        case "getString" -> value == null ? null : value.toString();
+        case "getTimestamp" -> value == null ? null : Timestamp.valueOf((LocalDateTime) value);
+        default -> value;
+      };
+    });
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> T proxy(Class<T> type, Handler handler) {
+    return (T) Proxy.newProxyInstance(StubJdbc.class.getClassLoader(), new Class<?>[]{type},
+        (proxy, method, args) -> {
+          Object result = handler.handle(method.getName(), args);
+
+          if (result != null || !method.getReturnType().isPrimitive())
+            return result;
+          if (method.getReturnType() == boolean.class)
+            return false;
+          if (method.getReturnType() == void.class)
+            return null;
+          return method.getReturnType() == long.class ? 0L : 0;
+        });
+  }
+
+  @FunctionalInterface
+  private interface Handler {
+
+    Object handle(String method, Object[] args);
+  }
+}
@@ -0,0 +1,168 @@
+package com.back.simpleDb;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.platform.commons.logging.Logger;
+import org.junit.platform.commons.logging.LoggerFactory;
+
+public class Batch implements AutoCloseable {
+
+  private final Connection conn;
+  private final SimpleDb simpleDb;
+  private final String sql;
+  private final List<Long> generatedKeys = new ArrayList<>();
+  private final List<Object> pendingRows = new ArrayList<>();
+  private final Logger logger = LoggerFactory.getLogger(Batch.class);
+  private int batchSize = 1000;
+  private PreparedStatement ps;
+  private int pendingCnt = 0;
+  private long affectedRowsCnt = 0;
+  private boolean affectedRowsUnknown = false;
+
+  public Batch(Connection conn, String sql) {
+    this.conn = conn;
+    this.simpleDb = null;
+    this.sql = sql;
+  }
+
+  Batch(SimpleDb simpleDb, String sql) {
+    this.conn = null;
+    this.simpleDb = simpleDb;
+    this.sql = sql;
+  }
+
+  public Batch batchSize(int batchSize) {
+    if (batchSize < 1)
+      throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+
+    this.batchSize = batchSize;
+    return this;
+  }
+
+  public Batch add(Object... bindParams) {
+    try {
+      if (ps == null)
+        ps = connection().prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+
+      JdbcTypes.bindAll(ps, bindParams);
+
+      ps.addBatch();
+      pendingRows.add(Arrays.asList(bindParams));
+      pendingCnt++;
+
+      if (pendingCnt >= batchSize)
+        flush();
+
+      return this;
+    } catch (SQLException e) {
+      close();
+      logger.error(e, () -> "Batch add failed: %s, SQL: %s".formatted(e.getMessage(), sql));
+      throw new RuntimeException("Batch execution failed", e);
+    }
+  }
+
+  public List<Long> insert() {
+    execute();
+    return generatedKeys;
+  }
+
+  public long update() {
+    execute();
+    return affectedRowsUnknown ? Statement.SUCCESS_NO_INFO : affectedRowsCnt;
+  }
+
+  public long delete() {
+    return update();
+  }
+
+  @Override
+  public void close() {
+    if (ps == null)
+      return;
+
+    try {
+      ps.close();
+    } catch (SQLException e) {
+      logger.error(e, () -> "Failed to close batch statement: %s".formatted(e.getMessage()));
+    } finally {
+      ps = null;
+      pendingRows.clear();
+      pendingCnt = 0;
+    }
+  }
+
+  private Connection connection() {
+    return conn != null ? conn : simpleDb.getConnection();
+  }
+
+  private void execute() {
+    try {
+      flush();
+    } finally {
+      close();
+    }
+  }
+
+  private void flush() {
+    if (pendingCnt == 0)
+      return;
+
+    QueryTimer timer = new QueryTimer(simpleDb, sql, List.copyOf(pendingRows));
+    timer.prepared();
+
+    try {
+      long flushedCnt = 0;
+      boolean unknown = false;
+      for (int cnt : ps.executeBatch()) {
+        if (cnt == Statement.SUCCESS_NO_INFO)
+          unknown = true;
+        else if (cnt > 0)
+          flushedCnt += cnt;
+      }
+      timer.executed();
+
+      if (unknown) {
+        long updateCnt = ps.getLargeUpdateCount();
+
+        if (updateCnt >= 0) {
+          flushedCnt = updateCnt;
+        } else {
+          affectedRowsUnknown = true;
+          flushedCnt = -1;
+          logger.warn(() -> "Batch affected row count is unknown (SUCCESS_NO_INFO), SQL: %s"
+              .formatted(sql));
+        }
+      }
+      if (flushedCnt > 0)
+        affectedRowsCnt += flushedCnt;
+
+      try (ResultSet rs = ps.getGeneratedKeys()) {
+        while (rs.next()) {
+          generatedKeys.add(rs.getLong(1));
+        }
+      }
+
+      timer.mapped(flushedCnt);
+      pendingRows.clear();
+      pendingCnt = 0;
+
+      if (simpleDb != null)
+        simpleDb.onWrite(sql);
+    } catch (SQLException e) {
+      timer.failed(e);
+      int failedCnt = pendingCnt;
+      close();
+      logger.error(e, () -> "Batch execution failed: %s, SQL: %s, pending: %d"
+          .formatted(e.getMessage(), sql, failedCnt));
+      throw new RuntimeException("Batch execution failed", e);
+    } finally {
+      timer.finish();
+    }
+  }
+}
@@ -0,0 +1,240 @@
+package com.back.simpleDb;
+
+import com.back.simpleDb.EntityInfo.Property;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.temporal.Temporal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.platform.commons.logging.Logger;
+import org.junit.platform.commons.logging.LoggerFactory;
+
+class BulkWriter {
+
+  private static final int MAX_PLACEHOLDERS = 65_535;
+
+  private final SimpleDb simpleDb;
+  private final long maxStatementBytes;
+  private final Logger logger = LoggerFactory.getLogger(BulkWriter.class);
+
+  BulkWriter(SimpleDb simpleDb, long maxStatementBytes) {
+    this.simpleDb = simpleDb;
+    this.maxStatementBytes = maxStatementBytes;
+  }
+
+  <T> List<Long> insertAll(String table, List<T> entities) {
+    if (entities.isEmpty())
+      return List.of();
+
+    String quotedTable = quote(table);
+    EntityInfo info = EntityInfo.of(entities.get(0).getClass());
+    int withId = countWithId(info, entities);
+
+    if (withId != 0 && withId != entities.size())
+      throw new IllegalArgumentException(
+          "Cannot insert new and existing %s entities together".formatted(table));
+
+    boolean generateIds = withId == 0;
+    List<Property> columns = writableColumns(info, entities,
+        generateIds ? info.nonIdColumns() : info.columns());
+    List<Long> ids = new ArrayList<>(entities.size());
+
+    for (List<T> chunk : chunks(columns, entities)) {
+      String sql = insertSql(quotedTable, columns, chunk.size(), null);
+      List<Long> keys = execute(sql, columns, chunk, generateIds);
+
+      if (!generateIds) {
+        for (T entity : chunk) {
+          ids.add(info.idOf(entity));
+        }
+        continue;
+      }
+
+      if (keys.size() != chunk.size())
+        throw new IllegalStateException("Expected %d generated keys but got %d: %s"
+            .formatted(chunk.size(), keys.size(), table));
+
+      for (int i = 0; i < chunk.size(); i++) {
+        info.setId(chunk.get(i), keys.get(i));
+      }
+      ids.addAll(keys);
+    }
+
+    return ids;
+  }
+
+  <T> long upsertAll(String table, List<T> entities, String... updateColumns) {
+    if (entities.isEmpty())
+      return 0;
+
+    String quotedTable = quote(table);
+    EntityInfo info = EntityInfo.of(entities.get(0).getClass());
+    List<Property> columns = writableColumns(info, entities, countWithId(info, entities) == 0
+        ? info.nonIdColumns()
+        : info.columns());
+    List<String> updates = updateColumns.length > 0
+        ? Arrays.asList(updateColumns)
+        : columns.stream().filter(column -> column != info.id()).map(Property::column).toList();
+
+    if (updates.isEmpty())
+      throw new IllegalArgumentException(
+          "No columns to update on duplicate key: %s".formatted(table));
+
+    boolean rowAlias = simpleDb.supportsInsertRowAlias();
+    String onDuplicate = updates.stream()
+        .map(BulkWriter::quote)
+        .map(column -> rowAlias
+            ? "%s = `new`.%s".formatted(column, column)
+            : "%s = VALUES(%s)".formatted(column, column))
+        .collect(Collectors.joining(", ",
+            rowAlias ? " AS `new` ON DUPLICATE KEY UPDATE " : " ON DUPLICATE KEY UPDATE ", ""));
+    long affectedRowsCnt = 0;
+
+    for (List<T> chunk : chunks(columns, entities)) {
+      affectedRowsCnt += execute(insertSql(quotedTable, columns, chunk.size(), onDuplicate),
+          columns, chunk, false).get(0);
+    }
+
+    return affectedRowsCnt;
+  }
+
+  private <T> List<Long> execute(
+      String sql,
+      List<Property> columns,
+      List<T> chunk,
+      boolean generatedKeys
+  ) {
+    Connection conn = simpleDb.getConnection();
+    List<Object> bindParams = new ArrayList<>(chunk.size() * columns.size());
+    QueryTimer timer = new QueryTimer(simpleDb, sql, bindParams);
+
+    try (PreparedStatement ps = generatedKeys
+        ? conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
+        : conn.prepareStatement(sql)) {
+      for (T entity : chunk) {
+        for (Property column : columns) {
+          Object value = column.value(entity);
+          bindParams.add(value);
+          JdbcTypes.bind(ps, bindParams.size(), value);
+        }
+      }
+      timer.prepared();
+
+      long affectedRowsCnt = ps.executeUpdate();
+      timer.executed();
+      simpleDb.onWrite(sql);
+
+      if (!generatedKeys) {
+        timer.mapped(affectedRowsCnt);
+        return List.of(affectedRowsCnt);
+      }
+
+      List<Long> keys = new ArrayList<>(chunk.size());
+      try (ResultSet rs = ps.getGeneratedKeys()) {
+        while (rs.next()) {
+          keys.add(rs.getLong(1));
+        }
+      }
+      timer.mapped(affectedRowsCnt);
+      return keys;
+    } catch (SQLException e) {
+      timer.failed(e);
+      logger.error(e, () -> "Bulk write failed: %s, SQL: %s, rows: %d"
+          .formatted(e.getMessage(), sql, chunk.size()));
+      throw new RuntimeException("SQL execution failed", e);
+    } catch (RuntimeException e) {
+      timer.failed(e);
+      throw e;
+    } finally {
+      timer.finish();
+    }
+  }
+
+  private List<Property> writableColumns(EntityInfo info, List<?> entities,
+      List<Property> columns) {
+    List<Property> lazyColumns = info.loadedLazyColumns(entities);
+
+    if (lazyColumns.isEmpty())
+      return columns;
+
+    List<Property> writable = new ArrayList<>(columns);
+    writable.addAll(lazyColumns);
+    return writable;
+  }
+
+  private <T> List<List<T>> chunks(List<Property> columns, List<T> entities) {
+    int maxRows = Math.max(1, MAX_PLACEHOLDERS / Math.max(1, columns.size()));
+    List<List<T>> chunks = new ArrayList<>();
+    int from = 0;
+    long bytes = 0;
+
+    for (int i = 0; i < entities.size(); i++) {
+      long rowBytes = 8;
+      for (Property column : columns) {
+        rowBytes += estimateBytes(column.value(entities.get(i)));
+      }
+
+      if (i > from && (i - from >= maxRows || bytes + rowBytes > maxStatementBytes)) {
+        chunks.add(entities.subList(from, i));
+        from = i;
+        bytes = 0;
+      }
+      bytes += rowBytes;
+    }
+
+    chunks.add(entities.subList(from, entities.size()));
+    return chunks;
+  }
+
+  private String insertSql(String table, List<Property> columns, int rowCnt, String suffix) {
+    String row = "(" + SqlMarkers.of(columns.size()) + ")";
+    StringBuilder sb = new StringBuilder(64 + (row.length() + 2) * rowCnt)
+        .append("INSERT INTO ").append(table).append(" (")
+        .append(columns.stream().map(c -> quote(c.column())).collect(Collectors.joining(", ")))
+        .append(") VALUES ").append(row);
+
+    for (int i = 1; i < rowCnt; i++) {
+      sb.append(", ").append(row);
+    }
+    if (suffix != null)
+      sb.append(suffix);
+
+    return sb.toString();
+  }
+
+  private static String quote(String identifier) {
+    if (!identifier.matches("[\\w$]+"))
+      throw new IllegalArgumentException("Invalid identifier: " + identifier);
+
+    return "`" + identifier + "`";
+  }
+
+  private <T> int countWithId(EntityInfo info, List<T> entities) {
+    if (info.id() == null)
+      return 0;
+
+    int cnt = 0;
+    for (T entity : entities) {
+      if (info.idOf(entity) != null)
+        cnt++;
+    }
+    return cnt;
+  }
+
+  private static long estimateBytes(Object value) {
+    if (value == null)
+      return 6;
+    if (value instanceof CharSequence s)
+      return 4L * s.length() + 4;
+    if (value instanceof byte[] b)
+      return 2L * b.length + 4;
+    if (value instanceof Temporal)
+      return 32;
+    return 24;
+  }
+}
@@ -0,0 +1,486 @@
+package com.back.simpleDb;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.Getter;
+
+public class ColumnarResult {
+
+  private static final int INITIAL_CAPACITY = 256;
+
+  private final String[] names;
+  private final Column[] columns;
+  @Getter
+  private final int rowCount;
+
+  private ColumnarResult(String[] names, Column[] columns, int rowCount) {
+    this.names = names;
+    this.columns = columns;
+    this.rowCount = rowCount;
+  }
+
+  public List<String> getColumnNames() {
+    return List.of(names);
+  }
+
+  public int columnIndex(String name) {
+    for (int i = 0; i < names.length; i++) {
+      if (names[i].equalsIgnoreCase(name))
+        return i;
+    }
+    throw new IllegalArgumentException("Unknown column: " + name);
+  }
+
+  public long[] getLongs(String name) {
+    Column column = column(name);
+
+    if (column instanceof LongColumn longs)
+      return longs.values.clone();
+    if (column instanceof IntColumn ints)
+      return Arrays.stream(ints.values).asLongStream().toArray();
+    throw typeMismatch(name, "long");
+  }
+
+  public int[] getInts(String name) {
+    if (column(name) instanceof IntColumn ints)
+      return ints.values.clone();
+    throw typeMismatch(name, "int");
+  }
+
+  public double[] getDoubles(String name) {
+    if (column(name) instanceof DoubleColumn doubles)
+      return doubles.values.clone();
+    throw typeMismatch(name, "double");
+  }
+
+  public long[] getEpochMicros(String name) {
+    if (column(name) instanceof DateTimeColumn dateTimes)
+      return dateTimes.epochMicros.clone();
+    throw typeMismatch(name, "datetime");
+  }
+
+  public BitSet getBooleans(String name) {
+    if (column(name) instanceof BooleanColumn booleans)
+      return (BitSet) booleans.values.clone();
+    throw typeMismatch(name, "boolean");
+  }
+
+  public int[] getCodes(String name) {
+    if (column(name) instanceof StringColumn strings)
+      return strings.codes.clone();
+    throw typeMismatch(name, "string");
+  }
+
+  public String[] getDictionary(String name) {
+    if (column(name) instanceof StringColumn strings)
+      return strings.dictionary.clone();
+    throw typeMismatch(name, "string");
+  }
+
+  public boolean isNull(String name, int row) {
+    return isNull(columnIndex(name), row);
+  }
+
+  public boolean isNull(int column, int row) {
+    return columns[column].nulls.get(checkRow(row));
+  }
+
+  public long getLong(String name, int row) {
+    return getLong(columnIndex(name), row);
+  }
+
+  public long getLong(int column, int row) {
+    checkRow(row);
+
+    if (columns[column] instanceof LongColumn longs)
+      return longs.values[row];
+    if (columns[column] instanceof IntColumn ints)
+      return ints.values[row];
+    throw typeMismatch(names[column], "long");
+  }
+
+  public int getInt(String name, int row) {
+    return getInt(columnIndex(name), row);
+  }
+
+  public int getInt(int column, int row) {
+    checkRow(row);
+
+    if (columns[column] instanceof IntColumn ints)
+      return ints.values[row];
+    throw typeMismatch(names[column], "int");
+  }
+
+  public double getDouble(String name, int row) {
+    return getDouble(columnIndex(name), row);
+  }
+
+  public double getDouble(int column, int row) {
+    checkRow(row);
+
+    if (columns[column] instanceof DoubleColumn doubles)
+      return doubles.values[row];
+    throw typeMismatch(names[column], "double");
+  }
+
+  public int getCode(String name, int row) {
+    checkRow(row);
+
+    if (column(name) instanceof StringColumn strings)
+      return strings.codes[row];
+    throw typeMismatch(name, "string");
+  }
+
+  public boolean getBoolean(String name, int row) {
+    checkRow(row);
+
+    if (column(name) instanceof BooleanColumn booleans)
+      return booleans.values.get(row);
+    throw typeMismatch(name, "boolean");
+  }
+
+  public String getString(String name, int row) {
+    Object value = get(name, row);
+    return value == null ? null : value.toString();
+  }
+
+  public LocalDateTime getDateTime(String name, int row) {
+    if (column(name) instanceof DateTimeColumn dateTimes)
+      return (LocalDateTime) dateTimes.get(checkRow(row));
+    throw typeMismatch(name, "datetime");
+  }
+
+  public Object get(String name, int row) {
+    Column column = column(name);
+    checkRow(row);
+    return column.nulls.get(row) ? null : column.get(row);
+  }
+
+  long estimateBytes() {
+    long size = 32 + 8L * columns.length;
+
+    for (int i = 0; i < columns.length; i++) {
+      size += 40 + 2L * names[i].length() + columns[i].estimateBytes();
+    }
+    return size;
+  }
+
+  static ColumnarResult read(ResultSet rs) throws SQLException {
+    ResultSetMetaData meta = rs.getMetaData();
+    int colCnt = meta.getColumnCount();
+    String[] names = new String[colCnt];
+    Column[] columns = new Column[colCnt];
+
+    for (int i = 0; i < colCnt; i++) {
+      names[i] = meta.getColumnLabel(i + 1);
+      columns[i] = columnFor(meta.getColumnClassName(i + 1));
+    }
+
+    int rowCnt = 0;
+    while (rs.next()) {
+      for (int i = 0; i < colCnt; i++) {
+        columns[i].read(rs, i + 1, rowCnt);
+      }
+      rowCnt++;
+    }
+
+    for (Column column : columns) {
+      column.trim(rowCnt);
+    }
+
+    return new ColumnarResult(names, columns, rowCnt);
+  }
+
+  private static Column columnFor(String className) {
+    if (className == null)
+      return new ObjectColumn();
+
+    return switch (className) {
+      case "java.lang.Long" -> new LongColumn();
+      case "java.lang.Integer", "java.lang.Short", "java.lang.Byte" -> new IntColumn();
+      case "java.lang.Double", "java.lang.Float" -> new DoubleColumn();
+      case "java.lang.Boolean" -> new BooleanColumn();
+      case "java.lang.String" -> new StringColumn();
+      case "java.time.LocalDateTime", "java.sql.Timestamp" -> new DateTimeColumn();
+      default -> new ObjectColumn();
+    };
+  }
+
+  private Column column(String name) {
+    return columns[columnIndex(name)];
+  }
+
+  private int checkRow(int row) {
+    if (row < 0 || row >= rowCount)
+      throw new IndexOutOfBoundsException("Row %d out of %d".formatted(row, rowCount));
+    return row;
+  }
+
+  private IllegalStateException typeMismatch(String name, String type) {
+    return new IllegalStateException("Column %s is not a %s column".formatted(name, type));
+  }
+
+  private abstract static class Column {
+
+    final BitSet nulls = new BitSet();
+
+    abstract void read(ResultSet rs, int index, int row) throws SQLException;
+
+    abstract Object get(int row);
+
+    abstract void trim(int rowCnt);
+
+    long estimateBytes() {
+      return 16 + nulls.size() / 8;
+    }
+  }
+
+  private static class LongColumn extends Column {
+
+    long[] values = new long[INITIAL_CAPACITY];
+
+    @Override
+    void read(ResultSet rs, int index, int row) throws SQLException {
+      if (row == values.length)
+        values = Arrays.copyOf(values, row * 2);
+
+      values[row] = rs.getLong(index);
+      if (rs.wasNull())
+        nulls.set(row);
+    }
+
+    @Override
+    Object get(int row) {
+      return values[row];
+    }
+
+    @Override
+    long estimateBytes() {
+      return super.estimateBytes() + 8L * values.length;
+    }
+
+    @Override
+    void trim(int rowCnt) {
+      values = Arrays.copyOf(values, rowCnt);
+    }
+  }
+
+  private static class IntColumn extends Column {
+
+    int[] values = new int[INITIAL_CAPACITY];
+
+    @Override
+    void read(ResultSet rs, int index, int row) throws SQLException {
+      if (row == values.length)
+        values = Arrays.copyOf(values, row * 2);
+
+      values[row] = rs.getInt(index);
+      if (rs.wasNull())
+        nulls.set(row);
+    }
+
+    @Override
+    Object get(int row) {
+      return values[row];
+    }
+
+    @Override
+    long estimateBytes() {
+      return super.estimateBytes() + 4L * values.length;
+    }
+
+    @Override
+    void trim(int rowCnt) {
+      values = Arrays.copyOf(values, rowCnt);
+    }
+  }
+
+  private static class DoubleColumn extends Column {
+
+    double[] values = new double[INITIAL_CAPACITY];
+
+    @Override
+    void read(ResultSet rs, int index, int row) throws SQLException {
+      if (row == values.length)
+        values = Arrays.copyOf(values, row * 2);
+
+      values[row] = rs.getDouble(index);
+      if (rs.wasNull())
+        nulls.set(row);
+    }
+
+    @Override
+    Object get(int row) {
+      return values[row];
+    }
+
+    @Override
+    long estimateBytes() {
+      return super.estimateBytes() + 8L * values.length;
+    }
+
+    @Override
+    void trim(int rowCnt) {
+      values = Arrays.copyOf(values, rowCnt);
+    }
+  }
+
+  private static class BooleanColumn extends Column {
+
+    final BitSet values = new BitSet();
+
+    @Override
+    void read(ResultSet rs, int index, int row) throws SQLException {
+      if (rs.getBoolean(index))
+        values.set(row);
+      if (rs.wasNull())
+        nulls.set(row);
+    }
+
+    @Override
+    Object get(int row) {
+      return values.get(row);
+    }
+
+    @Override
+    long estimateBytes() {
+      return super.estimateBytes() + values.size() / 8;
+    }
+
+    @Override
+    void trim(int rowCnt) {
+    }
+  }
+
+  private static class StringColumn extends Column {
+
+    int[] codes = new int[INITIAL_CAPACITY];
+    String[] dictionary = new String[16];
+    private Map<String, Integer> codeByValue = new HashMap<>();
+
+    @Override
+    void read(ResultSet rs, int index, int row) throws SQLException {
+      if (row == codes.length)
+        codes = Arrays.copyOf(codes, row * 2);
+
+      String value = rs.getString(index);
+
+      if (value == null) {
+        codes[row] = -1;
+        nulls.set(row);
+        return;
+      }
+
+      Integer code = codeByValue.get(value);
+
+      if (code == null) {
+        code = codeByValue.size();
+        codeByValue.put(value, code);
+
+        if (code == dictionary.length)
+          dictionary = Arrays.copyOf(dictionary, code * 2);
+        dictionary[code] = value;
+      }
+
+      codes[row] = code;
+    }
+
+    @Override
+    Object get(int row) {
+      return dictionary[codes[row]];
+    }
+
+    @Override
+    long estimateBytes() {
+      long size = super.estimateBytes() + 4L * codes.length + 8L * dictionary.length;
+
+      for (String value : dictionary) {
+        if (value != null)
+          size += 40 + 2L * value.length();
+      }
+      return size;
+    }
+
+    @Override
+    void trim(int rowCnt) {
+      codes = Arrays.copyOf(codes, rowCnt);
+      dictionary = Arrays.copyOf(dictionary, codeByValue.size());
+      codeByValue = null;
+    }
+  }
+
+  private static class DateTimeColumn extends Column {
+
+    long[] epochMicros = new long[INITIAL_CAPACITY];
+
+    @Override
+    void read(ResultSet rs, int index, int row) throws SQLException {
+      if (row == epochMicros.length)
+        epochMicros = Arrays.copyOf(epochMicros, row * 2);
+
+      LocalDateTime value = rs.getObject(index, LocalDateTime.class);
+
+      if (value == null) {
+        nulls.set(row);
+        return;
+      }
+
+      epochMicros[row] = value.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + value.getNano() / 1_000;
+    }
+
+    @Override
+    Object get(int row) {
+      long micros = epochMicros[row];
+      return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000),
+          (int) Math.floorMod(micros, 1_000_000) * 1_000, ZoneOffset.UTC);
+    }
+
+    @Override
+    long estimateBytes() {
+      return super.estimateBytes() + 8L * epochMicros.length;
+    }
+
+    @Override
+    void trim(int rowCnt) {
+      epochMicros = Arrays.copyOf(epochMicros, rowCnt);
+    }
+  }
+
+  private static class ObjectColumn extends Column {
+
+    Object[] values = new Object[INITIAL_CAPACITY];
+
+    @Override
+    void read(ResultSet rs, int index, int row) throws SQLException {
+      if (row == values.length)
+        values = Arrays.copyOf(values, row * 2);
+
+      values[row] = rs.getObject(index);
+      if (values[row] == null)
+        nulls.set(row);
+    }
+
+    @Override
+    Object get(int row) {
+      return values[row];
+    }
+
+    @Override
+    long estimateBytes() {
+      return super.estimateBytes() + 24L * values.length;
+    }
+
+    @Override
+    void trim(int rowCnt) {
+      values = Arrays.copyOf(values, rowCnt);
+    }
+  }
+}
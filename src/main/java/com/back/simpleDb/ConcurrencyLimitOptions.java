@@ -0,0 +1,69 @@
+package com.back.simpleDb;
+
+import lombok.Getter;
+
+@Getter
+public class ConcurrencyLimitOptions {
+
+  private int initialLimit = 20;
+  private int minLimit = 1;
+  private int maxLimit = 200;
+  private long queueTimeoutMillis = 1_000;
+  private int maxQueueSize = 1_000;
+  private double writeShare = 0.3;
+  private int rttProbeInterval = 1_000;
+
+  public ConcurrencyLimitOptions initialLimit(int initialLimit) {
+    if (initialLimit < 1)
+      throw new IllegalArgumentException("initialLimit must be positive: " + initialLimit);
+
+    this.initialLimit = initialLimit;
+    return this;
+  }
+
+  public ConcurrencyLimitOptions minLimit(int minLimit) {
+    if (minLimit < 1)
+      throw new IllegalArgumentException("minLimit must be positive: " + minLimit);
+
+    this.minLimit = minLimit;
+    return this;
+  }
+
+  public ConcurrencyLimitOptions maxLimit(int maxLimit) {
+    if (maxLimit < 1)
+      throw new IllegalArgumentException("maxLimit must be positive: " + maxLimit);
+
+    this.maxLimit = maxLimit;
+    return this;
+  }
+
+  public ConcurrencyLimitOptions queueTimeoutMillis(long queueTimeoutMillis) {
+    this.queueTimeoutMillis = queueTimeoutMillis;
+    return this;
+  }
+
+  public ConcurrencyLimitOptions maxQueueSize(int maxQueueSize) {
+    if (maxQueueSize < 0)
+      throw new IllegalArgumentException("maxQueueSize must not be negative: " + maxQueueSize);
+
+    this.maxQueueSize = maxQueueSize;
+    return this;
+  }
+
+  public ConcurrencyLimitOptions writeShare(double writeShare) {
+    if (writeShare <= 0 || writeShare >= 1)
+      throw new IllegalArgumentException("writeShare must be between 0 and 1: " + writeShare);
+
+    this.writeShare = writeShare;
+    return this;
+  }
+
+  public ConcurrencyLimitOptions rttProbeInterval(int rttProbeInterval) {
+    if (rttProbeInterval < 1)
+      throw new IllegalArgumentException(
+          "rttProbeInterval must be positive: " + rttProbeInterval);
+
+    this.rttProbeInterval = rttProbeInterval;
+    return this;
+  }
+}
@@ -0,0 +1,204 @@
+package com.back.simpleDb;
+
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.Getter;
+
+public class ConcurrencyLimiter {
+
+  private static final double DROP_RATIO = 0.9;
+
+  private final ConcurrencyLimitOptions options;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition changed = lock.newCondition();
+  private final Deque<Object> readQueue = new ArrayDeque<>();
+  private final Deque<Object> writeQueue = new ArrayDeque<>();
+  private int readInFlight = 0;
+  private int writeInFlight = 0;
+  private volatile double estimatedLimit;
+  @Getter
+  private volatile long minRttNanos = 0;
+  private long sampleCnt = 0;
+  @Getter
+  private final LongAdder admittedCount = new LongAdder();
+  @Getter
+  private final LongAdder rejectedCount = new LongAdder();
+  @Getter
+  private final LongAdder droppedCount = new LongAdder();
+
+  ConcurrencyLimiter(ConcurrencyLimitOptions options) {
+    this.options = options;
+    this.estimatedLimit = clamp(options.getInitialLimit());
+  }
+
+  public int getLimit() {
+    return (int) estimatedLimit;
+  }
+
+  public int getInFlight() {
+    lock.lock();
+    try {
+      return readInFlight + writeInFlight;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int getQueued() {
+    lock.lock();
+    try {
+      return readQueue.size() + writeQueue.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  Permit acquire(QueryLane lane) {
+    Deque<Object> queue = queueOf(lane);
+
+    lock.lock();
+    try {
+      if (queue.isEmpty() && canAdmit(lane))
+        return admit(lane);
+
+      if (queue.size() >= options.getMaxQueueSize())
+        throw reject(lane, "queue is full");
+
+      Object ticket = new Object();
+      long remaining = TimeUnit.MILLISECONDS.toNanos(options.getQueueTimeoutMillis());
+      queue.addLast(ticket);
+
+      try {
+        while (queue.peekFirst() != ticket || !canAdmit(lane)) {
+          if (remaining <= 0)
+            throw reject(lane, "timed out after %dms".formatted(options.getQueueTimeoutMillis()));
+
+          remaining = changed.awaitNanos(remaining);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException("Interrupted while waiting for a query slot", e);
+      } finally {
+        queue.remove(ticket);
+        changed.signalAll();
+      }
+
+      return admit(lane);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  void release(Permit permit, Throwable error) {
+    long rttNanos = System.nanoTime() - permit.startedAt();
+
+    lock.lock();
+    try {
+      if (permit.lane() == QueryLane.READ)
+        readInFlight--;
+      else
+        writeInFlight--;
+
+      if (isDrop(error)) {
+        droppedCount.increment();
+        estimatedLimit = clamp(estimatedLimit * DROP_RATIO);
+      } else if (error == null) {
+        sample(rttNanos, permit.inFlight());
+      }
+
+      changed.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void sample(long rttNanos, int inFlight) {
+    rttNanos = Math.max(1, rttNanos);
+    sampleCnt++;
+
+    if (minRttNanos == 0 || rttNanos < minRttNanos
+        || sampleCnt % options.getRttProbeInterval() == 0) {
+      minRttNanos = rttNanos;
+      return;
+    }
+
+    double limit = estimatedLimit;
+    double queueSize = limit * (1 - (double) minRttNanos / rttNanos);
+    double threshold = Math.max(1, Math.log10(limit));
+
+    if (queueSize < 3 * threshold) {
+      if (inFlight * 2 >= limit)
+        limit += threshold;
+    } else if (queueSize > 6 * threshold) {
+      limit -= threshold;
+    }
+
+    estimatedLimit = clamp(limit);
+  }
+
+  private boolean canAdmit(QueryLane lane) {
+    int limit = getLimit();
+
+    if (readInFlight + writeInFlight >= limit)
+      return false;
+
+    boolean read = lane == QueryLane.READ;
+
+    if ((read ? writeQueue : readQueue).isEmpty())
+      return true;
+
+    int writeQuota = Math.max(1, (int) Math.round(limit * options.getWriteShare()));
+    int readQuota = Math.max(1, limit - writeQuota);
+
+    return read
+        ? readInFlight < readQuota || writeInFlight >= writeQuota
+        : writeInFlight < writeQuota || readInFlight >= readQuota;
+  }
+
+  private Permit admit(QueryLane lane) {
+    if (lane == QueryLane.READ)
+      readInFlight++;
+    else
+      writeInFlight++;
+
+    admittedCount.increment();
+    return new Permit(this, lane, System.nanoTime(), readInFlight + writeInFlight);
+  }
+
+  private RejectedExecutionException reject(QueryLane lane, String reason) {
+    rejectedCount.increment();
+    return new RejectedExecutionException(
+        "Query rejected, %s: lane: %s, limit: %d, inFlight: %d, queued: %d".formatted(reason,
+            lane, getLimit(), readInFlight + writeInFlight, queueOf(lane).size()));
+  }
+
+  private Deque<Object> queueOf(QueryLane lane) {
+    return lane == QueryLane.READ ? readQueue : writeQueue;
+  }
+
+  private double clamp(double limit) {
+    return Math.max(options.getMinLimit(), Math.min(options.getMaxLimit(), limit));
+  }
+
+  private static boolean isDrop(Throwable error) {
+    for (Throwable e = error; e != null; e = e.getCause()) {
+      if (e instanceof SQLTimeoutException || e instanceof SQLTransientConnectionException)
+        return true;
+    }
+    return false;
+  }
+
+  record Permit(ConcurrencyLimiter limiter, QueryLane lane, long startedAt, int inFlight) {
+
+    void release(Throwable error) {
+      limiter.release(this, error);
+    }
+  }
+}
@@ -0,0 +1,426 @@
+package com.back.simpleDb;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.Getter;
+import lombok.Setter;
+import org.junit.platform.commons.logging.Logger;
+import org.junit.platform.commons.logging.LoggerFactory;
+
+public class ConnectionPool {
+
+  @Getter
+  @Setter
+  private int minSize = 2;
+  @Getter
+  @Setter
+  private int maxSize = 10;
+  @Getter
+  @Setter
+  private long borrowTimeoutMillis = 30_000;
+  @Getter
+  @Setter
+  private long idleTimeoutMillis = 600_000;
+  @Getter
+  @Setter
+  private long maxLifetimeMillis = 1_800_000;
+  @Getter
+  @Setter
+  private int validationTimeoutSeconds = 2;
+  @Getter
+  @Setter
+  private long validationBypassMillis = 500;
+  @Getter
+  @Setter
+  private long housekeepingIntervalMillis = 30_000;
+  @Getter
+  @Setter
+  private int statementCacheSize = 64;
+  @Getter
+  private final StatementCacheStats statementCacheStats = new StatementCacheStats();
+
+  private final SQLExceptionSupplier<Connection> connectionFactory;
+  private final ReentrantLock lock = new ReentrantLock(true);
+  private final Condition available = lock.newCondition();
+  private final Deque<PooledConnection> idle = new ArrayDeque<>();
+  private final Logger logger = LoggerFactory.getLogger(ConnectionPool.class);
+
+  private int total = 0;
+  private int active = 0;
+  private int waiting = 0;
+  private boolean closed = false;
+  private volatile ScheduledExecutorService housekeeper;
+
+  public ConnectionPool(SQLExceptionSupplier<Connection> connectionFactory) {
+    this.connectionFactory = connectionFactory;
+  }
+
+  public Connection borrow() throws SQLException {
+    return borrowPooled().getProxy();
+  }
+
+  PooledConnection borrowPooled() throws SQLException {
+    startHousekeeping();
+    long remaining = TimeUnit.MILLISECONDS.toNanos(borrowTimeoutMillis);
+
+    while (true) {
+      PooledConnection pc;
+
+      lock.lock();
+      try {
+        if (closed)
+          throw new SQLException("Connection pool is closed");
+
+        pc = idle.pollFirst();
+
+        if (pc == null && total >= maxSize) {
+          if (remaining <= 0)
+            throw new SQLTransientConnectionException(
+                "Timed out after %dms waiting for a connection, active: %d, max: %d"
+                    .formatted(borrowTimeoutMillis, active, maxSize));
+
+          waiting++;
+          try {
+            remaining = available.awaitNanos(remaining);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+          } finally {
+            waiting--;
+          }
+          continue;
+        }
+
+        if (pc == null)
+          total++;
+        active++;
+      } finally {
+        lock.unlock();
+      }
+
+      if (pc == null) {
+        pc = createConnection();
+        pc.lease();
+        return pc;
+      }
+
+      if (isUsable(pc)) {
+        pc.lease();
+        return pc;
+      }
+
+      discard(pc);
+    }
+  }
+
+  void release(PooledConnection pc) {
+    boolean healthy = resetState(pc);
+
+    lock.lock();
+    try {
+      active--;
+      pc.markReturned();
+
+      if (closed || !healthy || isExpired(pc)) {
+        total--;
+      } else {
+        idle.offerFirst(pc);
+        pc = null;
+      }
+      available.signal();
+    } finally {
+      lock.unlock();
+    }
+
+    if (pc != null)
+      pc.closePhysical();
+  }
+
+  public int prefill() throws SQLException {
+    return prefill(pc -> null);
+  }
+
+  int prefill(SQLExceptionFunction<PooledConnection, ?> initializer) throws SQLException {
+    int toCreate;
+
+    lock.lock();
+    try {
+      if (closed)
+        throw new SQLException("Connection pool is closed");
+
+      toCreate = Math.max(0, Math.min(minSize, maxSize) - total);
+      total += toCreate;
+    } finally {
+      lock.unlock();
+    }
+
+    if (toCreate == 0)
+      return 0;
+
+    ExecutorService executor = Executors.newFixedThreadPool(toCreate, runnable -> {
+      Thread thread = new Thread(runnable, "SimpleDb-pool-prefill");
+      thread.setDaemon(true);
+      return thread;
+    });
+    List<CompletableFuture<PooledConnection>> futures = new ArrayList<>(toCreate);
+
+    try {
+      for (int i = 0; i < toCreate; i++) {
+        futures.add(CompletableFuture.supplyAsync(() -> openInitialized(initializer), executor));
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    int created = 0;
+    Throwable failure = null;
+
+    for (CompletableFuture<PooledConnection> future : futures) {
+      PooledConnection pc = null;
+
+      try {
+        pc = future.join();
+      } catch (CompletionException e) {
+        if (failure == null)
+          failure = e.getCause();
+        else
+          failure.addSuppressed(e.getCause());
+      }
+
+      lock.lock();
+      try {
+        if (pc == null || closed) {
+          total--;
+        } else {
+          idle.offerLast(pc);
+          created++;
+          pc = null;
+        }
+        available.signal();
+      } finally {
+        lock.unlock();
+      }
+
+      if (pc != null)
+        pc.closePhysical();
+    }
+
+    if (failure instanceof SQLException e)
+      throw e;
+    if (failure instanceof RuntimeException e)
+      throw e;
+    if (failure != null)
+      throw new SQLException("Failed to prefill connection pool", failure);
+
+    startHousekeeping();
+    return created;
+  }
+
+  private PooledConnection openInitialized(
+      SQLExceptionFunction<PooledConnection, ?> initializer) {
+    PooledConnection pc = null;
+
+    try {
+      pc = new PooledConnection(this, connectionFactory.get());
+      initializer.apply(pc);
+      return pc;
+    } catch (SQLException | RuntimeException e) {
+      if (pc != null)
+        pc.closePhysical();
+      throw new CompletionException(e);
+    }
+  }
+
+  public PoolStats getStats() {
+    lock.lock();
+    try {
+      return new PoolStats(active, idle.size(), waiting, total);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public void close() {
+    List<PooledConnection> toClose;
+
+    lock.lock();
+    try {
+      closed = true;
+      toClose = new ArrayList<>(idle);
+      total -= idle.size();
+      idle.clear();
+      available.signalAll();
+    } finally {
+      lock.unlock();
+    }
+
+    if (housekeeper != null)
+      housekeeper.shutdownNow();
+
+    toClose.forEach(PooledConnection::closePhysical);
+  }
+
+  private PooledConnection createConnection() throws SQLException {
+    try {
+      return new PooledConnection(this, connectionFactory.get());
+    } catch (SQLException | RuntimeException e) {
+      lock.lock();
+      try {
+        total--;
+        active--;
+        available.signal();
+      } finally {
+        lock.unlock();
+      }
+      throw e;
+    }
+  }
+
+  private void discard(PooledConnection pc) {
+    lock.lock();
+    try {
+      total--;
+      active--;
+      available.signal();
+    } finally {
+      lock.unlock();
+    }
+
+    pc.closePhysical();
+  }
+
+  private boolean isUsable(PooledConnection pc) {
+    if (isExpired(pc))
+      return false;
+
+    if (System.nanoTime() - pc.getLastUsedAt()
+        < TimeUnit.MILLISECONDS.toNanos(validationBypassMillis))
+      return true;
+
+    try {
+      return pc.getPhysical().isValid(validationTimeoutSeconds);
+    } catch (SQLException e) {
+      return false;
+    }
+  }
+
+  private boolean isExpired(PooledConnection pc) {
+    return maxLifetimeMillis > 0 && System.nanoTime() - pc.getCreatedAt()
+        > TimeUnit.MILLISECONDS.toNanos(maxLifetimeMillis);
+  }
+
+  private boolean resetState(PooledConnection pc) {
+    Connection conn = pc.getPhysical();
+
+    try {
+      if (conn.isClosed())
+        return false;
+
+      if (!conn.getAutoCommit()) {
+        conn.rollback();
+        conn.setAutoCommit(true);
+      }
+      return true;
+    } catch (SQLException e) {
+      logger.error(e, () -> "Failed to reset pooled connection: %s".formatted(e.getMessage()));
+      return false;
+    }
+  }
+
+  private void startHousekeeping() {
+    if (housekeeper != null)
+      return;
+
+    lock.lock();
+    try {
+      if (housekeeper != null || closed)
+        return;
+
+      housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "SimpleDb-pool-housekeeper");
+        thread.setDaemon(true);
+        return thread;
+      });
+      housekeeper.scheduleWithFixedDelay(this::housekeep,
+          0, housekeepingIntervalMillis, TimeUnit.MILLISECONDS);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void housekeep() {
+    List<PooledConnection> evicted = new ArrayList<>();
+    int toCreate;
+
+    lock.lock();
+    try {
+      long now = System.nanoTime();
+      Iterator<PooledConnection> it = idle.descendingIterator();
+
+      while (it.hasNext()) {
+        PooledConnection pc = it.next();
+        boolean idleTooLong = idleTimeoutMillis > 0 && total > minSize
+            && now - pc.getLastUsedAt() > TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+
+        if (idleTooLong || isExpired(pc)) {
+          it.remove();
+          total--;
+          evicted.add(pc);
+        }
+      }
+
+      toCreate = closed ? 0 : Math.max(0, Math.min(minSize, maxSize) - total);
+      total += toCreate;
+    } finally {
+      lock.unlock();
+    }
+
+    evicted.forEach(PooledConnection::closePhysical);
+
+    for (int i = 0; i < toCreate; i++) {
+      try {
+        PooledConnection pc = new PooledConnection(this, connectionFactory.get());
+
+        lock.lock();
+        try {
+          if (closed) {
+            total--;
+          } else {
+            idle.offerLast(pc);
+            available.signal();
+            pc = null;
+          }
+        } finally {
+          lock.unlock();
+        }
+
+        if (pc != null)
+          pc.closePhysical();
+      } catch (SQLException | RuntimeException e) {
+        lock.lock();
+        try {
+          total -= toCreate - i;
+          available.signal();
+        } finally {
+          lock.unlock();
+        }
+        logger.error(e, () -> "Failed to fill connection pool: %s".formatted(e.getMessage()));
+        return;
+      }
+    }
+  }
+}
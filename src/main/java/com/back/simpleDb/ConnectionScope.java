@@ -0,0 +1,38 @@
+package com.back.simpleDb;
+
+import java.sql.Connection;
+import java.util.concurrent.Semaphore;
+
+public class ConnectionScope implements AutoCloseable {
+
+  private final SimpleDb simpleDb;
+  private final PooledConnection previous;
+  private final PooledConnection lent;
+  private final Semaphore permits;
+  private boolean closed = false;
+
+  ConnectionScope(
+      SimpleDb simpleDb,
+      PooledConnection previous,
+      PooledConnection lent,
+      Semaphore permits
+  ) {
+    this.simpleDb = simpleDb;
+    this.previous = previous;
+    this.lent = lent;
+    this.permits = permits;
+  }
+
+  public Connection getConnection() {
+    return lent != null ? lent.getProxy() : previous.getProxy();
+  }
+
+  @Override
+  public void close() {
+    if (closed)
+      return;
+
+    closed = true;
+    simpleDb.endScope(lent, permits);
+  }
+}
@@ -0,0 +1,142 @@
+package com.back.simpleDb;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+record EntityInfo(
+    List<Property> columns,
+    List<Property> nonIdColumns,
+    List<Property> lazyColumns,
+    Property id
+) {
+
+  private static final Map<Class<?>, EntityInfo> entityInfos = new ConcurrentHashMap<>();
+
+  static EntityInfo of(Class<?> clazz) {
+    return entityInfos.computeIfAbsent(clazz, EntityInfo::inspect);
+  }
+
+  Long idOf(Object entity) {
+    if (id == null)
+      return null;
+
+    Object value = id.read(entity);
+
+    if (value instanceof Number number && number.longValue() != 0)
+      return number.longValue();
+    return null;
+  }
+
+  void setId(Object entity, long value) {
+    if (id == null || id.setter() == null)
+      return;
+
+    try {
+      if (id.type() == int.class || id.type() == Integer.class)
+        id.setter().invoke(entity, (int) value);
+      else
+        id.setter().invoke(entity, value);
+    } catch (Throwable e) {
+      throw new IllegalStateException("Failed to set id on " + entity.getClass().getName(), e);
+    }
+  }
+
+  Object[] snapshot(Object entity) {
+    Object[] values = new Object[columns.size() + lazyColumns.size()];
+
+    for (int i = 0; i < values.length; i++) {
+      values[i] = trackedColumn(i).read(entity);
+    }
+    return values;
+  }
+
+  Property trackedColumn(int index) {
+    return index < columns.size()
+        ? columns.get(index)
+        : lazyColumns.get(index - columns.size());
+  }
+
+  List<Property> loadedLazyColumns(List<?> entities) {
+    List<Property> loaded = new ArrayList<>();
+
+    for (Property column : lazyColumns) {
+      boolean allLoaded = true;
+
+      for (Object entity : entities) {
+        if (!(column.read(entity) instanceof Lazy<?> lazy && lazy.isLoaded())) {
+          allLoaded = false;
+          break;
+        }
+      }
+
+      if (allLoaded)
+        loaded.add(column);
+    }
+    return loaded;
+  }
+
+  private static EntityInfo inspect(Class<?> clazz) {
+    List<Property> columns = new ArrayList<>();
+    List<Property> lazyColumns = new ArrayList<>();
+    Property id = null;
+
+    try {
+      for (Class<?> c = clazz; c != null && !c.getName().startsWith("java.");
+          c = c.getSuperclass()) {
+        MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(c, MethodHandles.lookup());
+
+        for (Field field : c.getDeclaredFields()) {
+          int mod = field.getModifiers();
+
+          if (Modifier.isStatic(mod) || Modifier.isTransient(mod))
+            continue;
+
+          JsonProperty alias = field.getAnnotation(JsonProperty.class);
+          String column = alias != null && !alias.value().isEmpty()
+              ? alias.value() : field.getName();
+          MethodHandle setter = Modifier.isFinal(mod) ? null : lookup.unreflectSetter(field);
+          Property property = new Property(column, field.getType(),
+              lookup.unreflectGetter(field), setter);
+
+          if (field.getType() == Lazy.class) {
+            lazyColumns.add(property);
+            continue;
+          }
+          if (column.equalsIgnoreCase("id"))
+            id = property;
+          columns.add(property);
+        }
+      }
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException("Cannot inspect entity " + clazz.getName(), e);
+    }
+
+    Property idProperty = id;
+    List<Property> nonIdColumns = columns.stream().filter(p -> p != idProperty).toList();
+    return new EntityInfo(List.copyOf(columns), nonIdColumns, List.copyOf(lazyColumns), id);
+  }
+
+  record Property(String column, Class<?> type, MethodHandle getter, MethodHandle setter) {
+
+    Object read(Object entity) {
+      try {
+        return getter.invoke(entity);
+      } catch (Throwable e) {
+        throw new IllegalStateException("Failed to read " + column, e);
+      }
+    }
+
+    Object value(Object entity) {
+      Object value = read(entity);
+
+      return value instanceof Lazy<?> lazy ? lazy.get() : value;
+    }
+  }
+}
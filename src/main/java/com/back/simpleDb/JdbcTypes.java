@@ -0,0 +1,224 @@
+package com.back.simpleDb;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.lang.invoke.MethodType;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+final class JdbcTypes {
+
+  private static final Binder OBJECT_BINDER = PreparedStatement::setObject;
+  private static final Map<Class<?>, Binder> binders = new ConcurrentHashMap<>();
+  private static final Map<Class<?>, Extractor> extractors = new ConcurrentHashMap<>();
+  private static final Map<String, Extractor> columnExtractors = new ConcurrentHashMap<>();
+
+  private JdbcTypes() {
+  }
+
+  static void bind(PreparedStatement ps, int index, Object value) throws SQLException {
+    if (value == null) {
+      ps.setNull(index, Types.NULL);
+      return;
+    }
+
+    binderFor(value.getClass()).bind(ps, index, value);
+  }
+
+  static void bindAll(PreparedStatement ps, Object[] values) throws SQLException {
+    for (int i = 0; i < values.length; i++) {
+      bind(ps, i + 1, values[i]);
+    }
+  }
+
+  static Binder binderFor(Class<?> type) {
+    Binder binder = binders.get(type);
+
+    if (binder == null)
+      binder = binders.computeIfAbsent(type, JdbcTypes::createBinder);
+
+    return binder;
+  }
+
+  static Extractor extractorFor(Class<?> type) {
+    Extractor extractor = extractors.get(type);
+
+    if (extractor == null)
+      extractor = extractors.computeIfAbsent(type, JdbcTypes::createExtractor);
+
+    return extractor;
+  }
+
+  static Extractor extractorFor(ResultSetMetaData meta, int column) throws SQLException {
+    String className = meta.getColumnClassName(column);
+
+    if (className == null)
+      return ResultSet::getObject;
+
+    return columnExtractors.computeIfAbsent(className, JdbcTypes::createColumnExtractor);
+  }
+
+  private static Binder createBinder(Class<?> type) {
+    if (type == Long.class)
+      return (ps, i, value) -> ps.setLong(i, (Long) value);
+    if (type == Integer.class)
+      return (ps, i, value) -> ps.setInt(i, (Integer) value);
+    if (type == Short.class)
+      return (ps, i, value) -> ps.setShort(i, (Short) value);
+    if (type == Byte.class)
+      return (ps, i, value) -> ps.setByte(i, (Byte) value);
+    if (type == Boolean.class)
+      return (ps, i, value) -> ps.setBoolean(i, (Boolean) value);
+    if (type == Double.class)
+      return (ps, i, value) -> ps.setDouble(i, (Double) value);
+    if (type == Float.class)
+      return (ps, i, value) -> ps.setFloat(i, (Float) value);
+    if (type == String.class)
+      return (ps, i, value) -> ps.setString(i, (String) value);
+    if (type == BigDecimal.class)
+      return (ps, i, value) -> ps.setBigDecimal(i, (BigDecimal) value);
+    if (type == byte[].class)
+      return (ps, i, value) -> ps.setBytes(i, (byte[]) value);
+    if (type == Timestamp.class)
+      return (ps, i, value) -> ps.setTimestamp(i, (Timestamp) value);
+    if (type == LocalDateTime.class)
+      return (ps, i, value) -> ps.setObject(i, value, Types.TIMESTAMP);
+    if (type == LocalDate.class)
+      return (ps, i, value) -> ps.setObject(i, value, Types.DATE);
+    if (type == LocalTime.class)
+      return (ps, i, value) -> ps.setObject(i, value, Types.TIME);
+    if (Enum.class.isAssignableFrom(type))
+      return (ps, i, value) -> ps.setString(i, ((Enum<?>) value).name());
+    if (Reader.class.isAssignableFrom(type))
+      return (ps, i, value) -> ps.setCharacterStream(i, (Reader) value);
+    if (InputStream.class.isAssignableFrom(type))
+      return (ps, i, value) -> ps.setBinaryStream(i, (InputStream) value);
+    if (ByteBuffer.class.isAssignableFrom(type))
+      return (ps, i, value) -> {
+        ByteBuffer buffer = (ByteBuffer) value;
+        ps.setBinaryStream(i, new ByteBufferInputStream(buffer.duplicate()), buffer.remaining());
+      };
+    return OBJECT_BINDER;
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static Extractor createExtractor(Class<?> type) {
+    if (type == long.class || type == Long.class)
+      return (rs, i) -> {
+        long value = rs.getLong(i);
+        return rs.wasNull() ? null : value;
+      };
+    if (type == int.class || type == Integer.class)
+      return (rs, i) -> {
+        int value = rs.getInt(i);
+        return rs.wasNull() ? null : value;
+      };
+    if (type == short.class || type == Short.class)
+      return (rs, i) -> {
+        short value = rs.getShort(i);
+        return rs.wasNull() ? null : value;
+      };
+    if (type == byte.class || type == Byte.class)
+      return (rs, i) -> {
+        byte value = rs.getByte(i);
+        return rs.wasNull() ? null : value;
+      };
+    if (type == boolean.class || type == Boolean.class)
+      return (rs, i) -> {
+        boolean value = rs.getBoolean(i);
+        return rs.wasNull() ? null : value;
+      };
+    if (type == double.class || type == Double.class)
+      return (rs, i) -> {
+        double value = rs.getDouble(i);
+        return rs.wasNull() ? null : value;
+      };
+    if (type == float.class || type == Float.class)
+      return (rs, i) -> {
+        float value = rs.getFloat(i);
+        return rs.wasNull() ? null : value;
+      };
+    if (type == String.class)
+      return ResultSet::getString;
+    if (type == BigDecimal.class)
+      return ResultSet::getBigDecimal;
+    if (type == byte[].class)
+      return ResultSet::getBytes;
+    if (type.isEnum())
+      return (rs, i) -> {
+        String name = rs.getString(i);
+        return name == null ? null : Enum.valueOf((Class<Enum>) type, name);
+      };
+    if (type.isPrimitive())
+      return (rs, i) -> rs.getObject(i, MethodType.methodType(type).wrap().returnType());
+    return (rs, i) -> rs.getObject(i, type);
+  }
+
+  private static Extractor createColumnExtractor(String className) {
+    return switch (className) {
+      case "java.lang.Long" -> extractorFor(Long.class);
+      case "java.lang.Integer" -> extractorFor(Integer.class);
+      case "java.lang.Boolean" -> extractorFor(Boolean.class);
+      case "java.lang.Double" -> extractorFor(Double.class);
+      case "java.lang.Float" -> extractorFor(Float.class);
+      case "java.lang.String" -> extractorFor(String.class);
+      case "java.math.BigDecimal" -> extractorFor(BigDecimal.class);
+      case "[B" -> extractorFor(byte[].class);
+      default -> ResultSet::getObject;
+    };
+  }
+
+  @FunctionalInterface
+  interface Binder {
+
+    void bind(PreparedStatement ps, int index, Object value) throws SQLException;
+  }
+
+  @FunctionalInterface
+  interface Extractor {
+
+    Object read(ResultSet rs, int index) throws SQLException;
+  }
+
+  private static final class ByteBufferInputStream extends InputStream {
+
+    private final ByteBuffer buffer;
+
+    ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (len == 0)
+        return 0;
+      if (!buffer.hasRemaining())
+        return -1;
+
+      int count = Math.min(len, buffer.remaining());
+      buffer.get(b, off, count);
+      return count;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+  }
+}
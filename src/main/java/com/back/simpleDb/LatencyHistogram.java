@@ -0,0 +1,71 @@
+package com.back.simpleDb;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+public class LatencyHistogram {
+
+  private static final int BUCKET_CNT = 64;
+
+  private final LongAdder[] buckets = new LongAdder[BUCKET_CNT];
+  private final LongAdder count = new LongAdder();
+  private final LongAdder totalNanos = new LongAdder();
+  private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+  public LatencyHistogram() {
+    for (int i = 0; i < BUCKET_CNT; i++) {
+      buckets[i] = new LongAdder();
+    }
+  }
+
+  public void record(long nanos) {
+    long value = Math.max(nanos, 1);
+
+    buckets[63 - Long.numberOfLeadingZeros(value)].increment();
+    count.increment();
+    totalNanos.add(value);
+    maxNanos.accumulate(value);
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  public long getTotalNanos() {
+    return totalNanos.sum();
+  }
+
+  public long getMaxNanos() {
+    return maxNanos.get();
+  }
+
+  public double getMeanNanos() {
+    long cnt = getCount();
+    return cnt == 0 ? 0.0 : (double) getTotalNanos() / cnt;
+  }
+
+  public long getPercentileNanos(double percentile) {
+    long[] counts = new long[BUCKET_CNT];
+    long total = 0;
+
+    for (int i = 0; i < BUCKET_CNT; i++) {
+      counts[i] = buckets[i].sum();
+      total += counts[i];
+    }
+
+    if (total == 0)
+      return 0;
+
+    long rank = (long) Math.ceil(total * Math.min(Math.max(percentile, 0.0), 1.0));
+    long seen = 0;
+
+    for (int i = 0; i < BUCKET_CNT; i++) {
+      seen += counts[i];
+
+      if (seen >= rank && counts[i] > 0)
+        return Math.min((1L << (i + 1)) - 1, getMaxNanos());
+    }
+
+    return getMaxNanos();
+  }
+}
@@ -0,0 +1,47 @@
+package com.back.simpleDb;
+
+import java.util.function.Supplier;
+
+public class Lazy<T> {
+
+  private Supplier<T> loader;
+  private T value;
+  private volatile boolean loaded;
+
+  private Lazy(Supplier<T> loader, T value, boolean loaded) {
+    this.loader = loader;
+    this.value = value;
+    this.loaded = loaded;
+  }
+
+  public static <T> Lazy<T> of(T value) {
+    return new Lazy<>(null, value, true);
+  }
+
+  public static <T> Lazy<T> of(Supplier<T> loader) {
+    return new Lazy<>(loader, null, false);
+  }
+
+  public T get() {
+    if (loaded)
+      return value;
+
+    synchronized (this) {
+      if (!loaded) {
+        value = loader.get();
+        loader = null;
+        loaded = true;
+      }
+      return value;
+    }
+  }
+
+  public boolean isLoaded() {
+    return loaded;
+  }
+
+  @Override
+  public String toString() {
+    return loaded ? "Lazy[" + value + "]" : "Lazy[not loaded]";
+  }
+}
@@ -0,0 +1,67 @@
+package com.back.simpleDb;
+
+import java.net.URI;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import lombok.Getter;
+import lombok.Setter;
+
+public class NioBackend implements SimpleDbBackend, AutoCloseable {
+
+  private static final int DEFAULT_PORT = 3306;
+
+  @Getter
+  private final NioMySqlEngine engine;
+  private final boolean ownsEngine;
+  @Getter
+  @Setter
+  private long connectTimeoutMillis = 10_000;
+  @Getter
+  @Setter
+  private long queryTimeoutMillis = 0;
+
+  public NioBackend() {
+    this(new NioMySqlEngine(), true);
+  }
+
+  public NioBackend(NioMySqlEngine engine) {
+    this(engine, false);
+  }
+
+  private NioBackend(NioMySqlEngine engine, boolean ownsEngine) {
+    this.engine = engine;
+    this.ownsEngine = ownsEngine;
+  }
+
+  @Override
+  public Connection connect(String url, Properties properties) throws SQLException {
+    if (!url.startsWith("jdbc:mysql://"))
+      throw new SQLException("Unsupported url: " + url, "08001");
+
+    URI uri = URI.create(url.substring("jdbc:".length()));
+    String path = uri.getPath();
+    String database = path == null || path.length() <= 1 ? "" : path.substring(1);
+    boolean multiStatements = Boolean.parseBoolean(properties.getProperty("allowMultiQueries"));
+
+    CompletableFuture<WireConnection> connecting = engine.connect(uri.getHost(),
+        uri.getPort() > 0 ? uri.getPort() : DEFAULT_PORT, properties.getProperty("user"),
+        properties.getProperty("password"), database, multiStatements);
+
+    try {
+      return NioJdbc.connection(NioJdbc.await(connecting, connectTimeoutMillis),
+          queryTimeoutMillis);
+    } catch (SQLTimeoutException e) {
+      connecting.thenAccept(WireConnection::close);
+      throw e;
+    }
+  }
+
+  @Override
+  public void close() {
+    if (ownsEngine)
+      engine.close();
+  }
+}
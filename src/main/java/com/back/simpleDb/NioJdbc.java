@@ -0,0 +1,821 @@
+package com.back.simpleDb;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTimeoutException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+final class NioJdbc {
+
+  private static final Object UNSUPPORTED = new Object();
+  private static final Object[] NO_ARGS = new Object[0];
+  private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern(
+      "yyyy-MM-dd HH:mm:ss");
+  private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss");
+  private static final WireColumn GENERATED_KEY = new WireColumn("", "GENERATED_KEY",
+      "GENERATED_KEY", 63, 20, WireColumn.TYPE_LONGLONG, 0, 0);
+
+  private NioJdbc() {
+  }
+
+  static Connection connection(WireConnection wire, long queryTimeoutMillis) {
+    return proxy(Connection.class, new ConnectionHandler(wire, queryTimeoutMillis));
+  }
+
+  static <T> T await(CompletableFuture<T> future, long timeoutMillis) throws SQLException {
+    try {
+      return timeoutMillis > 0 ? future.get(timeoutMillis, TimeUnit.MILLISECONDS) : future.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof SQLException sqlException)
+        throw sqlException;
+      throw new SQLException(e.getCause().getMessage(), e.getCause());
+    } catch (TimeoutException e) {
+      throw new SQLTimeoutException("Timed out after %dms".formatted(timeoutMillis), e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLException("Interrupted while waiting for the server", e);
+    }
+  }
+
+  static String literal(Object value, boolean noBackslashEscapes) throws SQLException {
+    if (value == null)
+      return "NULL";
+    if (value instanceof Boolean b)
+      return b ? "1" : "0";
+    if (value instanceof BigDecimal decimal)
+      return decimal.toPlainString();
+    if (value instanceof Double || value instanceof Float) {
+      double d = ((Number) value).doubleValue();
+
+      if (Double.isNaN(d) || Double.isInfinite(d))
+        throw new SQLDataException("'%s' is not a valid numeric value".formatted(value));
+      return value.toString();
+    }
+    if (value instanceof Number)
+      return value.toString();
+    if (value instanceof byte[] bytes)
+      return "X'" + HexFormat.of().formatHex(bytes) + "'";
+    if (value instanceof LocalDateTime dateTime)
+      return "'" + dateTime(dateTime) + "'";
+    if (value instanceof Timestamp timestamp)
+      return "'" + dateTime(timestamp.toLocalDateTime()) + "'";
+    if (value instanceof LocalDate || value instanceof Date)
+      return "'" + value + "'";
+    if (value instanceof LocalTime time)
+      return "'" + time(time) + "'";
+    if (value instanceof Time time)
+      return "'" + time(time.toLocalTime()) + "'";
+    if (value instanceof java.util.Date date)
+      return "'" + dateTime(new Timestamp(date.getTime()).toLocalDateTime()) + "'";
+    if (value instanceof Enum<?> e)
+      return quote(e.name(), noBackslashEscapes);
+    if (value instanceof InputStream in)
+      return literal(readAll(in), noBackslashEscapes);
+    if (value instanceof Reader reader)
+      return quote(readAll(reader), noBackslashEscapes);
+    return quote(value.toString(), noBackslashEscapes);
+  }
+
+  private static String quote(String value, boolean noBackslashEscapes) {
+    StringBuilder sb = new StringBuilder(value.length() + 2).append('\'');
+
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+
+      if (noBackslashEscapes) {
+        sb.append(c == '\'' ? "''" : String.valueOf(c));
+        continue;
+      }
+
+      switch (c) {
+        case '\0' -> sb.append("\\0");
+        case '\n' -> sb.append("\\n");
+        case '\r' -> sb.append("\\r");
+        case '\\' -> sb.append("\\\\");
+        case '\'' -> sb.append("\\'");
+        case '"' -> sb.append("\\\"");
+        case '\032' -> sb.append("\\Z");
+        default -> sb.append(c);
+      }
+    }
+
+    return sb.append('\'').toString();
+  }
+
+  private static String dateTime(LocalDateTime dateTime) {
+    return DATE_TIME.format(dateTime) + fraction(dateTime.getNano());
+  }
+
+  private static String time(LocalTime time) {
+    return TIME.format(time) + fraction(time.getNano());
+  }
+
+  private static String fraction(int nanos) {
+    return nanos == 0 ? "" : ".%06d".formatted(nanos / 1000);
+  }
+
+  private static byte[] readAll(InputStream in) throws SQLException {
+    try {
+      return in.readAllBytes();
+    } catch (IOException e) {
+      throw new SQLException("Failed to read stream parameter", e);
+    }
+  }
+
+  private static String readAll(Reader reader) throws SQLException {
+    try {
+      StringWriter writer = new StringWriter();
+      reader.transferTo(writer);
+      return writer.toString();
+    } catch (IOException e) {
+      throw new SQLException("Failed to read stream parameter", e);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+    return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+  }
+
+  private abstract static class Handler implements InvocationHandler {
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "equals" -> {
+          return proxy == args[0];
+        }
+        case "hashCode" -> {
+          return System.identityHashCode(proxy);
+        }
+        case "toString" -> {
+          return getClass().getSimpleName() + "@" + Integer.toHexString(
+              System.identityHashCode(proxy));
+        }
+        case "unwrap" -> {
+          Class<?> type = (Class<?>) args[0];
+
+          if (type.isInstance(proxy))
+            return proxy;
+          if (type.isInstance(target()))
+            return target();
+          throw new SQLException("Cannot unwrap to " + type.getName());
+        }
+        case "isWrapperFor" -> {
+          return ((Class<?>) args[0]).isInstance(proxy)
+              || ((Class<?>) args[0]).isInstance(target());
+        }
+      }
+
+      Object result = handle(proxy, method.getName(), args == null ? NO_ARGS : args);
+
+      if (result == UNSUPPORTED)
+        throw new SQLFeatureNotSupportedException(
+            method.getName() + " is not supported by the NIO backend");
+      return result;
+    }
+
+    Object target() {
+      return null;
+    }
+
+    abstract Object handle(Object proxy, String name, Object[] args) throws SQLException;
+  }
+
+  private static final class ConnectionHandler extends Handler {
+
+    private final WireConnection wire;
+    private final long timeoutMillis;
+    private boolean autoCommit = true;
+    private boolean readOnly = false;
+    private int isolation = Connection.TRANSACTION_REPEATABLE_READ;
+    private int savepointSeq = 0;
+    private boolean closed = false;
+
+    ConnectionHandler(WireConnection wire, long timeoutMillis) {
+      this.wire = wire;
+      this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    Object target() {
+      return wire;
+    }
+
+    @Override
+    Object handle(Object proxy, String name, Object[] args) throws SQLException {
+      return switch (name) {
+        case "prepareStatement" -> {
+          checkOpen();
+          boolean returnKeys = args.length == 2 && args[1] instanceof Integer keys
+              && keys == Statement.RETURN_GENERATED_KEYS;
+          yield proxy(PreparedStatement.class,
+              new StatementHandler((Connection) proxy, this, (String) args[0], returnKeys));
+        }
+        case "getAutoCommit" -> autoCommit;
+        case "setAutoCommit" -> {
+          boolean value = (Boolean) args[0];
+
+          if (value != autoCommit)
+            execute("SET autocommit = " + (value ? 1 : 0));
+          autoCommit = value;
+          yield null;
+        }
+        case "commit" -> execute("COMMIT");
+        case "rollback" -> execute(args.length == 0 ? "ROLLBACK"
+            : "ROLLBACK TO SAVEPOINT `" + ((Savepoint) args[0]).getSavepointName() + "`");
+        case "setSavepoint" -> {
+          int id = ++savepointSeq;
+          String savepointName = args.length == 0 ? "SP_" + id : (String) args[0];
+
+          execute("SAVEPOINT `" + savepointName + "`");
+          yield new NioSavepoint(id, savepointName);
+        }
+        case "releaseSavepoint" ->
+            execute("RELEASE SAVEPOINT `" + ((Savepoint) args[0]).getSavepointName() + "`");
+        case "getTransactionIsolation" -> isolation;
+        case "setTransactionIsolation" -> {
+          int level = (Integer) args[0];
+
+          execute("SET SESSION TRANSACTION ISOLATION LEVEL " + isolationName(level));
+          isolation = level;
+          yield null;
+        }
+        case "isReadOnly" -> readOnly;
+        case "setReadOnly" -> {
+          boolean value = (Boolean) args[0];
+
+          execute("SET SESSION TRANSACTION " + (value ? "READ ONLY" : "READ WRITE"));
+          readOnly = value;
+          yield null;
+        }
+        case "isValid" -> isValid((Integer) args[0]);
+        case "isClosed" -> closed || !wire.isOpen();
+        case "close" -> {
+          closed = true;
+          wire.close();
+          yield null;
+        }
+        case "getWarnings", "clearWarnings" -> null;
+        default -> UNSUPPORTED;
+      };
+    }
+
+    WireResult query(String sql, long timeoutMillis) throws SQLException {
+      checkOpen();
+
+      try {
+        return await(wire.query(sql), timeoutMillis);
+      } catch (SQLTimeoutException e) {
+        wire.close();
+        throw e;
+      }
+    }
+
+    List<CompletableFuture<WireResult>> pipeline(List<String> sqls) throws SQLException {
+      checkOpen();
+
+      List<CompletableFuture<WireResult>> futures = new ArrayList<>(sqls.size());
+      for (String sql : sqls) {
+        futures.add(wire.query(sql));
+      }
+      return futures;
+    }
+
+    boolean noBackslashEscapes() {
+      return (wire.getServerStatus() & WireConnection.SERVER_STATUS_NO_BACKSLASH_ESCAPES) != 0;
+    }
+
+    long timeoutMillis() {
+      return timeoutMillis;
+    }
+
+    private Object execute(String sql) throws SQLException {
+      query(sql, timeoutMillis);
+      return null;
+    }
+
+    private boolean isValid(int timeoutSeconds) {
+      if (closed || !wire.isOpen())
+        return false;
+
+      try {
+        await(wire.ping(), timeoutSeconds > 0 ? timeoutSeconds * 1000L : 0);
+        return true;
+      } catch (SQLException e) {
+        return false;
+      }
+    }
+
+    private void checkOpen() throws SQLException {
+      if (closed || !wire.isOpen())
+        throw new SQLNonTransientConnectionException("Connection is closed");
+    }
+
+    private static String isolationName(int level) throws SQLException {
+      return switch (level) {
+        case Connection.TRANSACTION_READ_UNCOMMITTED -> "READ UNCOMMITTED";
+        case Connection.TRANSACTION_READ_COMMITTED -> "READ COMMITTED";
+        case Connection.TRANSACTION_REPEATABLE_READ -> "REPEATABLE READ";
+        case Connection.TRANSACTION_SERIALIZABLE -> "SERIALIZABLE";
+        default -> throw new SQLException("Unsupported isolation level: " + level);
+      };
+    }
+  }
+
+  private static final class StatementHandler extends Handler {
+
+    private final Connection owner;
+    private final ConnectionHandler connection;
+    private final String[] fragments;
+    private final String[] params;
+    private final boolean returnKeys;
+    private final List<String> batch = new ArrayList<>();
+    private final List<Long> generatedKeys = new ArrayList<>();
+    private WireResult current;
+    private long timeoutMillis;
+    private int fetchSize = 0;
+    private boolean closed = false;
+
+    StatementHandler(Connection owner, ConnectionHandler connection, String sql,
+        boolean returnKeys) {
+      this.owner = owner;
+      this.connection = connection;
+      this.fragments = SqlMarkers.split(sql);
+      this.params = new String[fragments.length - 1];
+      this.returnKeys = returnKeys;
+      this.timeoutMillis = connection.timeoutMillis();
+    }
+
+    @Override
+    Object handle(Object proxy, String name, Object[] args) throws SQLException {
+      switch (name) {
+        case "close" -> {
+          closed = true;
+          return null;
+        }
+        case "isClosed" -> {
+          return closed;
+        }
+        case "getConnection" -> {
+          return owner;
+        }
+      }
+
+      if (closed)
+        throw new SQLException("Statement is closed");
+
+      return switch (name) {
+        case "setNull" -> bind((Integer) args[0], null);
+        case "setFetchSize" -> {
+          fetchSize = (Integer) args[0];
+          yield null;
+        }
+        case "getFetchSize" -> fetchSize;
+        case "setQueryTimeout" -> {
+          timeoutMillis = (Integer) args[0] * 1000L;
+          yield null;
+        }
+        case "getQueryTimeout" -> (int) (timeoutMillis / 1000);
+        case "clearParameters" -> {
+          Arrays.fill(params, null);
+          yield null;
+        }
+        case "executeQuery" -> {
+          execute(render());
+
+          if (!current.isResultSet())
+            throw new SQLException("Statement did not return a result set");
+          yield resultSet(proxy, current);
+        }
+        case "executeUpdate" -> (int) execute(render()).getAffectedRows();
+        case "executeLargeUpdate" -> execute(render()).getAffectedRows();
+        case "execute" -> execute(render()).isResultSet();
+        case "getResultSet" ->
+            current != null && current.isResultSet() ? resultSet(proxy, current) : null;
+        case "getUpdateCount" ->
+            current != null && !current.isResultSet() ? (int) current.getAffectedRows() : -1;
+        case "getLargeUpdateCount" ->
+            current != null && !current.isResultSet() ? current.getAffectedRows() : -1L;
+        case "getMoreResults" -> {
+          current = current == null ? null : current.getNext();
+          yield current != null && current.isResultSet();
+        }
+        case "getGeneratedKeys" -> resultSet(proxy, generatedKeys());
+        case "addBatch" -> {
+          batch.add(render());
+          yield null;
+        }
+        case "executeBatch" -> executeBatch();
+        case "clearBatch" -> {
+          batch.clear();
+          yield null;
+        }
+        case "getWarnings", "clearWarnings" -> null;
+        default -> name.startsWith("set") && args.length >= 2 && args[0] instanceof Integer index
+            ? bind(index, args[1]) : UNSUPPORTED;
+      };
+    }
+
+    private Object bind(int index, Object value) throws SQLException {
+      if (index < 1 || index > params.length)
+        throw new SQLException("Parameter index out of range: %d, parameters: %d"
+            .formatted(index, params.length), "S1009");
+
+      params[index - 1] = literal(value, connection.noBackslashEscapes());
+      return null;
+    }
+
+    private String render() throws SQLException {
+      int length = fragments[fragments.length - 1].length();
+
+      for (int i = 0; i < params.length; i++) {
+        if (params[i] == null)
+          throw new SQLException("No value specified for parameter " + (i + 1), "07001");
+        length += fragments[i].length() + params[i].length();
+      }
+
+      StringBuilder sb = new StringBuilder(length);
+      for (int i = 0; i < params.length; i++) {
+        sb.append(fragments[i]).append(params[i]);
+      }
+      return sb.append(fragments[fragments.length - 1]).toString();
+    }
+
+    private WireResult execute(String sql) throws SQLException {
+      generatedKeys.clear();
+      current = connection.query(sql, timeoutMillis);
+      addGeneratedKeys(current);
+      return current;
+    }
+
+    private int[] executeBatch() throws SQLException {
+      List<CompletableFuture<WireResult>> futures = connection.pipeline(batch);
+      int[] counts = new int[futures.size()];
+      SQLException failure = null;
+
+      batch.clear();
+      generatedKeys.clear();
+      current = null;
+
+      for (int i = 0; i < counts.length; i++) {
+        try {
+          WireResult result = await(futures.get(i), timeoutMillis);
+          counts[i] = (int) result.getAffectedRows();
+          addGeneratedKeys(result);
+        } catch (SQLException e) {
+          counts[i] = Statement.EXECUTE_FAILED;
+          if (failure == null)
+            failure = e;
+        }
+      }
+
+      if (failure != null)
+        throw new BatchUpdateException(failure.getMessage(), failure.getSQLState(),
+            failure.getErrorCode(), counts, failure);
+      return counts;
+    }
+
+    private void addGeneratedKeys(WireResult result) {
+      for (WireResult r = result; r != null; r = r.getNext()) {
+        if (r.isResultSet() || r.getLastInsertId() == 0)
+          continue;
+
+        for (long i = 0; i < Math.max(1, r.getAffectedRows()); i++) {
+          generatedKeys.add(r.getLastInsertId() + i);
+        }
+      }
+    }
+
+    private WireResult generatedKeys() {
+      List<byte[][]> rows = new ArrayList<>(generatedKeys.size());
+
+      if (returnKeys) {
+        for (Long key : generatedKeys) {
+          rows.add(new byte[][]{key.toString().getBytes(StandardCharsets.US_ASCII)});
+        }
+      }
+      return new WireResult(List.of(GENERATED_KEY), rows, 0, 0, 0, 0);
+    }
+
+    private ResultSet resultSet(Object statement, WireResult result) {
+      return proxy(ResultSet.class, new ResultSetHandler(statement, result));
+    }
+  }
+
+  private static final class ResultSetHandler extends Handler {
+
+    private final Object statement;
+    private final WireResult result;
+    private final List<WireColumn> columns;
+    private Map<String, Integer> indexByLabel;
+    private int row = -1;
+    private boolean wasNull = false;
+    private boolean closed = false;
+
+    ResultSetHandler(Object statement, WireResult result) {
+      this.statement = statement;
+      this.result = result;
+      this.columns = result.getColumns();
+    }
+
+    @Override
+    Object target() {
+      return result;
+    }
+
+    @Override
+    Object handle(Object proxy, String name, Object[] args) throws SQLException {
+      if (args.length > 0 && args[0] instanceof String label && name.startsWith("get"))
+        args[0] = findColumn(label);
+
+      return switch (name) {
+        case "next" -> {
+          row = Math.min(row + 1, result.getRowCount());
+          yield row < result.getRowCount();
+        }
+        case "wasNull" -> wasNull;
+        case "close" -> {
+          closed = true;
+          yield null;
+        }
+        case "isClosed" -> closed;
+        case "getMetaData" -> proxy(ResultSetMetaData.class, new MetaDataHandler(columns));
+        case "findColumn" -> findColumn((String) args[0]);
+        case "getStatement" -> statement;
+        case "getRow" -> row < result.getRowCount() ? row + 1 : 0;
+        case "getType" -> ResultSet.TYPE_FORWARD_ONLY;
+        case "getConcurrency" -> ResultSet.CONCUR_READ_ONLY;
+        case "getFetchSize" -> 0;
+        case "setFetchSize", "getWarnings", "clearWarnings" -> null;
+        case "getObject" -> args.length == 1 ? object((Integer) args[0])
+            : convert((Integer) args[0], (Class<?>) args[1]);
+        case "getString" -> text((Integer) args[0]);
+        case "getLong" -> longValue((Integer) args[0]);
+        case "getInt" -> (int) longValue((Integer) args[0]);
+        case "getShort" -> (short) longValue((Integer) args[0]);
+        case "getByte" -> (byte) longValue((Integer) args[0]);
+        case "getDouble" -> doubleValue((Integer) args[0]);
+        case "getFloat" -> (float) doubleValue((Integer) args[0]);
+        case "getBoolean" -> booleanValue((Integer) args[0]);
+        case "getBigDecimal" -> decimalValue((Integer) args[0]);
+        case "getBytes" -> raw((Integer) args[0]);
+        case "getBinaryStream" -> {
+          byte[] raw = raw((Integer) args[0]);
+          yield raw == null ? null : new ByteArrayInputStream(raw);
+        }
+        case "getCharacterStream" -> {
+          byte[] raw = raw((Integer) args[0]);
+          yield raw == null ? null
+              : new InputStreamReader(new ByteArrayInputStream(raw), StandardCharsets.UTF_8);
+        }
+        case "getTimestamp" -> convert((Integer) args[0], Timestamp.class);
+        case "getDate" -> convert((Integer) args[0], Date.class);
+        case "getTime" -> convert((Integer) args[0], Time.class);
+        default -> UNSUPPORTED;
+      };
+    }
+
+    private int findColumn(String label) throws SQLException {
+      if (indexByLabel == null) {
+        indexByLabel = new HashMap<>();
+        for (int i = columns.size() - 1; i >= 0; i--) {
+          indexByLabel.put(columns.get(i).label().toLowerCase(), i + 1);
+        }
+      }
+
+      Integer index = indexByLabel.get(label.toLowerCase());
+
+      if (index == null)
+        throw new SQLException("Column '%s' not found".formatted(label), "S0022");
+      return index;
+    }
+
+    private byte[] raw(int column) throws SQLException {
+      if (closed)
+        throw new SQLException("Result set is closed");
+      if (row < 0 || row >= result.getRowCount())
+        throw new SQLException("No current row", "S1000");
+      if (column < 1 || column > columns.size())
+        throw new SQLException("Column index out of range: " + column, "S1009");
+
+      byte[] raw = result.getRows().get(row)[column - 1];
+      wasNull = raw == null;
+      return raw;
+    }
+
+    private Object object(int column) throws SQLException {
+      byte[] raw = raw(column);
+
+      try {
+        return columns.get(column - 1).decode(raw);
+      } catch (RuntimeException e) {
+        throw new SQLDataException("Cannot decode column %d: %s".formatted(column,
+            e.getMessage()), "22018", e);
+      }
+    }
+
+    private String text(int column) throws SQLException {
+      byte[] raw = raw(column);
+
+      if (raw == null)
+        return null;
+      if (columns.get(column - 1).isBit())
+        return String.valueOf(WireColumn.bits(raw));
+      return new String(raw, StandardCharsets.UTF_8);
+    }
+
+    private long longValue(int column) throws SQLException {
+      String text = text(column);
+
+      if (text == null)
+        return 0;
+
+      try {
+        return Long.parseLong(text);
+      } catch (NumberFormatException e) {
+        return decimal(text).longValue();
+      }
+    }
+
+    private double doubleValue(int column) throws SQLException {
+      String text = text(column);
+
+      if (text == null)
+        return 0;
+
+      try {
+        return Double.parseDouble(text);
+      } catch (NumberFormatException e) {
+        throw new SQLDataException("Cannot convert '%s' to a number".formatted(text), "22018");
+      }
+    }
+
+    private boolean booleanValue(int column) throws SQLException {
+      String text = text(column);
+
+      if (text == null)
+        return false;
+      if (text.equalsIgnoreCase("true") || text.equalsIgnoreCase("y"))
+        return true;
+      if (text.equalsIgnoreCase("false") || text.equalsIgnoreCase("n"))
+        return false;
+      return doubleValue(column) != 0;
+    }
+
+    private BigDecimal decimalValue(int column) throws SQLException {
+      String text = text(column);
+
+      return text == null ? null : decimal(text);
+    }
+
+    private static BigDecimal decimal(String text) throws SQLDataException {
+      try {
+        return new BigDecimal(text.trim());
+      } catch (NumberFormatException e) {
+        throw new SQLDataException("Cannot convert '%s' to a number".formatted(text), "22018");
+      }
+    }
+
+    private Object convert(int column, Class<?> type) throws SQLException {
+      Object value = object(column);
+
+      if (value == null || type.isInstance(value))
+        return value;
+      if (type == String.class)
+        return text(column);
+      if (type == Long.class)
+        return longValue(column);
+      if (type == Integer.class)
+        return (int) longValue(column);
+      if (type == Short.class)
+        return (short) longValue(column);
+      if (type == Byte.class)
+        return (byte) longValue(column);
+      if (type == Double.class)
+        return doubleValue(column);
+      if (type == Float.class)
+        return (float) doubleValue(column);
+      if (type == Boolean.class)
+        return booleanValue(column);
+      if (type == BigDecimal.class)
+        return decimalValue(column);
+      if (type == BigInteger.class)
+        return decimalValue(column).toBigInteger();
+      if (type == byte[].class)
+        return raw(column);
+      if (type == LocalDateTime.class)
+        return localDateTime(value);
+      if (type == LocalDate.class)
+        return localDateTime(value).toLocalDate();
+      if (type == LocalTime.class)
+        return value instanceof Time time ? time.toLocalTime() : localDateTime(value).toLocalTime();
+      if (type == Timestamp.class)
+        return Timestamp.valueOf(localDateTime(value));
+      if (type == Date.class)
+        return Date.valueOf(localDateTime(value).toLocalDate());
+      if (type == Time.class)
+        return value instanceof String s ? Time.valueOf(LocalTime.parse(s))
+            : Time.valueOf(localDateTime(value).toLocalTime());
+
+      throw new SQLDataException("Cannot convert %s to %s"
+          .formatted(value.getClass().getSimpleName(), type.getName()), "22018");
+    }
+
+    private static LocalDateTime localDateTime(Object value) throws SQLDataException {
+      if (value instanceof LocalDateTime dateTime)
+        return dateTime;
+      if (value instanceof Timestamp timestamp)
+        return timestamp.toLocalDateTime();
+      if (value instanceof Date date)
+        return date.toLocalDate().atStartOfDay();
+      if (value instanceof String s && !WireColumn.isZeroDate(s))
+        return WireColumn.parseDateTime(s);
+      throw new SQLDataException("Cannot convert '%s' to a date".formatted(value), "22018");
+    }
+  }
+
+  private static final class MetaDataHandler extends Handler {
+
+    private final List<WireColumn> columns;
+
+    MetaDataHandler(List<WireColumn> columns) {
+      this.columns = columns;
+    }
+
+    @Override
+    Object handle(Object proxy, String name, Object[] args) throws SQLException {
+      if (name.equals("getColumnCount"))
+        return columns.size();
+
+      if (args.length != 1 || !(args[0] instanceof Integer column))
+        return UNSUPPORTED;
+      if (column < 1 || column > columns.size())
+        throw new SQLException("Column index out of range: " + column, "S1009");
+
+      WireColumn wireColumn = columns.get(column - 1);
+
+      return switch (name) {
+        case "getColumnLabel" -> wireColumn.label();
+        case "getColumnName" -> wireColumn.name();
+        case "getColumnClassName" -> wireColumn.javaClass().getName();
+        case "getTableName" -> wireColumn.table();
+        case "getCatalogName", "getSchemaName" -> "";
+        case "getPrecision" -> (int) wireColumn.length();
+        case "getScale" -> wireColumn.decimals();
+        case "isSigned" -> !wireColumn.isUnsigned();
+        default -> UNSUPPORTED;
+      };
+    }
+  }
+
+  private record NioSavepoint(int id, String name) implements Savepoint {
+
+    @Override
+    public int getSavepointId() {
+      return id;
+    }
+
+    @Override
+    public String getSavepointName() {
+      return name;
+    }
+  }
+}
@@ -0,0 +1,153 @@
+package com.back.simpleDb;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.platform.commons.logging.Logger;
+import org.junit.platform.commons.logging.LoggerFactory;
+
+public class NioMySqlEngine implements AutoCloseable {
+
+  private final EventLoop[] loops;
+  private final AtomicInteger nextLoop = new AtomicInteger();
+  private final Set<WireConnection> connections = ConcurrentHashMap.newKeySet();
+  private volatile boolean closed = false;
+
+  public NioMySqlEngine() {
+    this(Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2)));
+  }
+
+  public NioMySqlEngine(int threadCnt) {
+    if (threadCnt < 1)
+      throw new IllegalArgumentException("threadCnt must be positive: " + threadCnt);
+
+    this.loops = new EventLoop[threadCnt];
+    for (int i = 0; i < threadCnt; i++) {
+      loops[i] = new EventLoop("SimpleDb-nio-" + i);
+    }
+  }
+
+  public CompletableFuture<WireConnection> connect(
+      String host, int port, String user, String password, String database) {
+    return connect(host, port, user, password, database, false);
+  }
+
+  public CompletableFuture<WireConnection> connect(String host, int port, String user,
+      String password, String database, boolean multiStatements) {
+    if (closed)
+      return CompletableFuture.failedFuture(new IllegalStateException("Engine is closed"));
+
+    EventLoop loop = loops[Math.floorMod(nextLoop.getAndIncrement(), loops.length)];
+    WireConnection conn = new WireConnection(this, loop, user, password, database,
+        multiStatements);
+
+    connections.add(conn);
+    return conn.open(new InetSocketAddress(host, port));
+  }
+
+  public int getThreadCount() {
+    return loops.length;
+  }
+
+  public int getConnectionCount() {
+    return connections.size();
+  }
+
+  void onClosed(WireConnection conn) {
+    connections.remove(conn);
+  }
+
+  @Override
+  public void close() {
+    if (closed)
+      return;
+
+    closed = true;
+    for (WireConnection conn : connections) {
+      conn.close();
+    }
+    for (EventLoop loop : loops) {
+      loop.shutdown();
+    }
+  }
+
+  static final class EventLoop implements Runnable {
+
+    private final Selector selector;
+    private final Thread thread;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final Logger logger = LoggerFactory.getLogger(EventLoop.class);
+    private volatile boolean running = true;
+
+    EventLoop(String name) {
+      try {
+        this.selector = Selector.open();
+      } catch (IOException e) {
+        throw new UncheckedIOException("Failed to open selector", e);
+      }
+      this.thread = new Thread(this, name);
+      thread.setDaemon(true);
+      thread.start();
+    }
+
+    Selector selector() {
+      return selector;
+    }
+
+    void execute(Runnable task) {
+      tasks.add(task);
+
+      if (Thread.currentThread() != thread)
+        selector.wakeup();
+    }
+
+    void shutdown() {
+      running = false;
+      selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+      while (running) {
+        try {
+          selector.select();
+          runTasks();
+
+          Set<SelectionKey> selected = selector.selectedKeys();
+          for (SelectionKey key : selected) {
+            ((WireConnection) key.attachment()).onReady(key);
+          }
+          selected.clear();
+        } catch (IOException | RuntimeException e) {
+          logger.error(e, () -> "Event loop failed: %s".formatted(e.getMessage()));
+        }
+      }
+
+      runTasks();
+      try {
+        selector.close();
+      } catch (IOException ignored) {
+      }
+    }
+
+    private void runTasks() {
+      Runnable task;
+
+      while ((task = tasks.poll()) != null) {
+        try {
+          task.run();
+        } catch (RuntimeException e) {
+          logger.error(e, () -> "Event loop task failed: %s".formatted(e.getMessage()));
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,174 @@
+package com.back.simpleDb;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+class ParallelScan<T> extends Spliterators.AbstractSpliterator<T> {
+
+  private static final int ROW_BUFFER = 1024;
+  private static final long POLL_MILLIS = 100;
+  private static final Object END = new Object();
+
+  private final SimpleDb simpleDb;
+  private final Class<T> clazz;
+  private final Iterator<Sql> pending;
+  private final int prefetch;
+  private final Deque<Chunk> window = new ArrayDeque<>();
+  private Chunk current;
+  private boolean closed = false;
+
+  ParallelScan(SimpleDb simpleDb, Class<T> clazz, List<Sql> chunks, int prefetch) {
+    super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+    this.simpleDb = simpleDb;
+    this.clazz = clazz;
+    this.pending = chunks.iterator();
+    this.prefetch = Math.max(1, prefetch);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public boolean tryAdvance(Consumer<? super T> action) {
+    while (!closed) {
+      if (current == null) {
+        fill();
+        current = window.pollFirst();
+
+        if (current == null)
+          return false;
+        fill();
+      }
+
+      Object row = current.next();
+
+      if (row == END) {
+        current = null;
+        continue;
+      }
+
+      action.accept((T) row);
+      return true;
+    }
+    return false;
+  }
+
+  void close() {
+    if (closed)
+      return;
+
+    closed = true;
+
+    if (current != null)
+      current.cancel();
+    window.forEach(Chunk::cancel);
+    window.clear();
+  }
+
+  private void fill() {
+    while (window.size() < prefetch && pending.hasNext()) {
+      Chunk chunk = new Chunk(pending.next());
+      window.addLast(chunk);
+
+      try {
+        simpleDb.getAsyncExecutor().execute(chunk);
+      } catch (RejectedExecutionException ignored) {
+      }
+    }
+  }
+
+  private final class Chunk implements Runnable {
+
+    private final Sql sql;
+    private final BlockingQueue<Object> rows = new ArrayBlockingQueue<>(ROW_BUFFER);
+    private final AtomicBoolean claimed = new AtomicBoolean();
+    private volatile boolean cancelled = false;
+    private Stream<T> inline;
+    private Iterator<T> inlineRows;
+
+    Chunk(Sql sql) {
+      this.sql = sql;
+    }
+
+    @Override
+    public void run() {
+      if (cancelled || !claimed.compareAndSet(false, true))
+        return;
+
+      try {
+        simpleDb.withConnection(() -> {
+          try (Stream<T> stream = sql.stream(clazz)) {
+            Iterator<T> it = stream.iterator();
+
+            while (it.hasNext()) {
+              if (!put(it.next()))
+                return;
+            }
+          }
+        });
+        put(END);
+      } catch (RuntimeException e) {
+        put(new Failure(e));
+      }
+    }
+
+    Object next() {
+      if (inlineRows == null && claimed.compareAndSet(false, true)) {
+        inline = sql.stream(clazz);
+        inlineRows = inline.iterator();
+      }
+
+      if (inlineRows != null) {
+        if (inlineRows.hasNext())
+          return inlineRows.next();
+
+        inline.close();
+        return END;
+      }
+
+      try {
+        Object row = rows.take();
+
+        if (row instanceof Failure failure)
+          throw failure.error();
+        return row;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException("Interrupted while waiting for a scan chunk", e);
+      }
+    }
+
+    void cancel() {
+      cancelled = true;
+      rows.clear();
+
+      if (inline != null)
+        inline.close();
+    }
+
+    private boolean put(Object row) {
+      try {
+        while (!cancelled) {
+          if (rows.offer(row, POLL_MILLIS, TimeUnit.MILLISECONDS))
+            return true;
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return false;
+    }
+  }
+
+  private record Failure(RuntimeException error) {
+
+  }
+}
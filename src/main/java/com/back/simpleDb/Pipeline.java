@@ -0,0 +1,178 @@
+package com.back.simpleDb;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import org.junit.platform.commons.logging.Logger;
+import org.junit.platform.commons.logging.LoggerFactory;
+
+public class Pipeline {
+
+  private final SimpleDb simpleDb;
+  private final List<Entry<?>> entries = new ArrayList<>();
+  private final Logger logger = LoggerFactory.getLogger(Pipeline.class);
+
+  Pipeline(SimpleDb simpleDb) {
+    this.simpleDb = simpleDb;
+  }
+
+  public CompletableFuture<Long> selectLong(Sql sql) {
+    return add(sql, Long.class, null);
+  }
+
+  public CompletableFuture<String> selectString(Sql sql) {
+    return add(sql, String.class, null);
+  }
+
+  public CompletableFuture<Boolean> selectBoolean(Sql sql) {
+    return add(sql, Boolean.class, null);
+  }
+
+  public CompletableFuture<Map<String, Object>> selectRow(Sql sql) {
+    return (CompletableFuture<Map<String, Object>>) (CompletableFuture<?>)
+        add(sql, Map.class, null);
+  }
+
+  public <T> CompletableFuture<T> selectRow(Sql sql, Class<T> clazz) {
+    return add(sql, clazz, null);
+  }
+
+  public CompletableFuture<List<Map<String, Object>>> selectRows(Sql sql) {
+    return (CompletableFuture<List<Map<String, Object>>>) (CompletableFuture<?>)
+        add(sql, List.class, Map.class);
+  }
+
+  public <T> CompletableFuture<List<T>> selectRows(Sql sql, Class<T> clazz) {
+    return (CompletableFuture<List<T>>) (CompletableFuture<?>) add(sql, List.class, clazz);
+  }
+
+  public CompletableFuture<Integer> update(Sql sql) {
+    return add(sql, null, null);
+  }
+
+  public CompletableFuture<Integer> delete(Sql sql) {
+    return update(sql);
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  public void execute() {
+    if (entries.isEmpty())
+      return;
+
+    List<Entry<?>> queued = new ArrayList<>(entries);
+    entries.clear();
+
+    if (queued.size() > 1 && simpleDb.isAllowMultiQueries())
+      executeMulti(queued);
+    else
+      executeSequential(queued);
+  }
+
+  private <T> CompletableFuture<T> add(Sql sql, Class<T> clazz, Class<?> listType) {
+    String text = sql.sql().strip();
+
+    if (text.endsWith(";"))
+      throw new IllegalArgumentException("Pipelined statements must not end with ';': " + text);
+    if (clazz != null && !SqlStatements.isSelect(text))
+      throw new IllegalArgumentException("Only SELECT statements can return rows: " + text);
+
+    Entry<T> entry = new Entry<>(sql, clazz, listType, new CompletableFuture<>());
+    entries.add(entry);
+    return entry.result();
+  }
+
+  private void executeSequential(List<Entry<?>> queued) {
+    for (int i = 0; i < queued.size(); i++) {
+      Entry<?> entry = queued.get(i);
+
+      try {
+        entry.complete(entry.sql().executeSql(entry.clazz(), entry.listType()));
+      } catch (RuntimeException e) {
+        failRemaining(queued, i, e);
+        throw e;
+      }
+    }
+  }
+
+  private void executeMulti(List<Entry<?>> queued) {
+    StringBuilder sb = new StringBuilder();
+    List<Object> bindParams = new ArrayList<>();
+
+    for (Entry<?> entry : queued) {
+      if (!sb.isEmpty())
+        sb.append(";\n");
+      sb.append(entry.sql().sql().strip());
+      bindParams.addAll(entry.sql().bindParams());
+    }
+
+    String sql = sb.toString();
+    Connection conn = simpleDb.getConnection();
+    QueryTimer timer = new QueryTimer(simpleDb, sql, bindParams);
+    int completed = 0;
+    long rows = 0;
+
+    try (PreparedStatement ps = conn.prepareStatement(sql)) {
+      for (int i = 0; i < bindParams.size(); i++) {
+        JdbcTypes.bind(ps, i + 1, bindParams.get(i));
+      }
+      timer.prepared();
+
+      boolean isResultSet = ps.execute();
+      timer.executed();
+
+      for (Entry<?> entry : queued) {
+        if (isResultSet) {
+          try (ResultSet rs = ps.getResultSet()) {
+            Object result = entry.sql().parseResultSet(rs, entry.clazz(), entry.listType());
+            rows += result instanceof List<?> list ? list.size() : 1;
+            entry.complete(result);
+          }
+        } else {
+          int affectedRowsCnt = ps.getUpdateCount();
+          rows += affectedRowsCnt;
+          simpleDb.onWrite(entry.sql().sql());
+          entry.complete(affectedRowsCnt);
+        }
+
+        completed++;
+        isResultSet = ps.getMoreResults();
+      }
+
+      timer.mapped(rows);
+    } catch (SQLException e) {
+      timer.failed(e);
+      failRemaining(queued, completed, e);
+      logger.error(e, () -> "Pipeline execution failed: %s, SQL: %s"
+          .formatted(e.getMessage(), sql));
+      throw new RuntimeException("SQL execution failed", e);
+    } catch (RuntimeException e) {
+      timer.failed(e);
+      failRemaining(queued, completed, e);
+      throw e;
+    } finally {
+      timer.finish();
+    }
+  }
+
+  private void failRemaining(List<Entry<?>> queued, int from, Throwable cause) {
+    for (int i = from; i < queued.size(); i++) {
+      queued.get(i).result().completeExceptionally(cause);
+    }
+  }
+
+  private record Entry<T>(Sql sql, Class<T> clazz, Class<?> listType, CompletableFuture<T> result) {
+
+    @SuppressWarnings("unchecked")
+    void complete(Object value) {
+      result.complete((T) value);
+    }
+  }
+}
@@ -0,0 +1,5 @@
+package com.back.simpleDb;
+
+public record PoolStats(int active, int idle, int waiting, int total) {
+
+}
@@ -0,0 +1,132 @@
+package com.back.simpleDb;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Set;
+import lombok.Getter;
+import lombok.Setter;
+
+class PooledConnection {
+
+  private final ConnectionPool pool;
+  @Getter
+  private final Connection physical;
+  @Getter
+  private final long createdAt = System.nanoTime();
+  @Getter
+  private long lastUsedAt = createdAt;
+  @Getter
+  private Connection proxy;
+  @Getter
+  @Setter
+  private boolean inTransaction = false;
+  @Getter
+  private final Set<String> writtenTables = new HashSet<>();
+  @Getter
+  @Setter
+  private UnitOfWork unitOfWork;
+  private final StatementCache statementCache;
+
+  PooledConnection(ConnectionPool pool, Connection physical) {
+    this.pool = pool;
+    this.physical = physical;
+    this.statementCache = pool.getStatementCacheSize() > 0
+        ? new StatementCache(physical, pool.getStatementCacheSize(), pool.getStatementCacheStats())
+        : null;
+  }
+
+  Connection lease() {
+    proxy = (Connection) Proxy.newProxyInstance(
+        Connection.class.getClassLoader(),
+        new Class<?>[]{Connection.class},
+        new LeaseHandler()
+    );
+    return proxy;
+  }
+
+  void markReturned() {
+    proxy = null;
+    inTransaction = false;
+    writtenTables.clear();
+    unitOfWork = null;
+    lastUsedAt = System.nanoTime();
+  }
+
+  boolean prepare(String sql, int autoGeneratedKeys) throws SQLException {
+    if (statementCache == null)
+      return false;
+
+    statementCache.prepare(physical, sql, autoGeneratedKeys).close();
+    return true;
+  }
+
+  void addWrittenTables(Set<String> tables) {
+    writtenTables.addAll(tables);
+  }
+
+  void closePhysical() {
+    if (statementCache != null)
+      statementCache.closeAll();
+
+    try {
+      physical.close();
+    } catch (SQLException ignored) {
+    }
+  }
+
+  private class LeaseHandler implements InvocationHandler {
+
+    private boolean returned = false;
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "close" -> {
+          if (!returned) {
+            returned = true;
+            pool.release(PooledConnection.this);
+          }
+          return null;
+        }
+        case "isClosed" -> {
+          return returned || physical.isClosed();
+        }
+        case "equals" -> {
+          return proxy == args[0];
+        }
+        case "hashCode" -> {
+          return System.identityHashCode(proxy);
+        }
+        case "toString" -> {
+          return "PooledConnection[" + physical + "]";
+        }
+      }
+
+      if (returned)
+        throw new SQLException("Connection has already been returned to the pool");
+
+      if (statementCache != null && method.getName().equals("prepareStatement")) {
+        Class<?>[] paramTypes = method.getParameterTypes();
+
+        if (paramTypes.length == 1)
+          return statementCache.prepare((Connection) proxy, (String) args[0],
+              Statement.NO_GENERATED_KEYS);
+
+        if (paramTypes.length == 2 && paramTypes[1] == int.class)
+          return statementCache.prepare((Connection) proxy, (String) args[0], (int) args[1]);
+      }
+
+      try {
+        return method.invoke(physical, args);
+      } catch (InvocationTargetException e) {
+        throw e.getCause();
+      }
+    }
+  }
+}
@@ -0,0 +1,128 @@
+package com.back.simpleDb;
+
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+final class Projections {
+
+  private static final int MAX_CACHED = 4096;
+  private static final Pattern SELECT_ALL = Pattern.compile(
+      "^\\s*SELECT\\s+\\*\\s+(?=FROM\\b)", Pattern.CASE_INSENSITIVE);
+  private static final Map<Key, String> projectedSqls = new ConcurrentHashMap<>();
+
+  private Projections() {
+  }
+
+  static String project(
+      String sql,
+      Class<?> rowType,
+      SQLExceptionFunction<String, String[]> probe
+  ) throws SQLException {
+    if (!isCandidate(rowType))
+      return sql;
+
+    Matcher matcher = SELECT_ALL.matcher(sql);
+
+    if (!matcher.find())
+      return sql;
+
+    Key key = new Key(sql, rowType);
+    String projected = projectedSqls.get(key);
+
+    if (projected != null)
+      return projected;
+
+    String[] labels = probe.apply("SELECT * FROM (\n" + sql + ") probe LIMIT 0");
+    List<String> selected = new ArrayList<>();
+    Set<String> seen = new HashSet<>();
+    boolean ambiguous = false;
+
+    for (String label : labels) {
+      if (!seen.add(label.toLowerCase(Locale.ROOT)))
+        ambiguous = true;
+      if (RowMappers.maps(rowType, label))
+        selected.add("`" + label + "`");
+    }
+
+    projected = ambiguous || selected.isEmpty() || selected.size() == labels.length
+        ? sql
+        : "SELECT " + String.join(", ", selected) + "\n" + sql.substring(matcher.end());
+
+    if (projectedSqls.size() >= MAX_CACHED)
+      projectedSqls.clear();
+    projectedSqls.put(key, projected);
+
+    return projected;
+  }
+
+  static void attachLazy(SimpleDb simpleDb, String sql, Object result) {
+    if (result == null || result instanceof List<?> list && list.isEmpty())
+      return;
+
+    Set<String> tables = SqlStatements.tables(sql);
+
+    if (tables.size() != 1)
+      return;
+
+    String table = tables.iterator().next();
+
+    if (result instanceof List<?> list) {
+      for (Object entity : list) {
+        attachLazyColumns(simpleDb, table, entity);
+      }
+      return;
+    }
+
+    attachLazyColumns(simpleDb, table, result);
+  }
+
+  private static void attachLazyColumns(SimpleDb simpleDb, String table, Object result) {
+    if (result == null || result.getClass().isRecord() || Proxy.isProxyClass(result.getClass())
+        || !isCandidate(result.getClass()))
+      return;
+
+    EntityInfo info = EntityInfo.of(result.getClass());
+    Long id = info.idOf(result);
+
+    if (info.lazyColumns().isEmpty() || id == null)
+      return;
+
+    String loadSql = "SELECT `%%s` FROM `%s` WHERE `%s` = ?"
+        .formatted(table, info.id().column());
+
+    for (EntityInfo.Property column : info.lazyColumns()) {
+      if (column.setter() == null || column.read(result) != null)
+        continue;
+
+      Lazy<Object> lazy = Lazy.of(() -> simpleDb.genSql()
+          .append(loadSql.formatted(column.column()), id)
+          .selectRow()
+          .get(column.column()));
+
+      try {
+        column.setter().invoke(result, lazy);
+      } catch (Throwable e) {
+        throw new IllegalStateException("Failed to set lazy column " + column.column(), e);
+      }
+    }
+  }
+
+  private static boolean isCandidate(Class<?> type) {
+    return type != null && !type.isPrimitive() && !type.isArray()
+        && !type.getName().startsWith("java.") && type != ColumnarResult.class
+        && RowMappers.isProjection(type);
+  }
+
+  private record Key(String sql, Class<?> type) {
+
+  }
+}
@@ -0,0 +1,306 @@
+package com.back.simpleDb;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.temporal.Temporal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.Getter;
+import lombok.Setter;
+
+public class QueryCache {
+
+  @Getter
+  @Setter
+  private int maxEntries = 10_000;
+  @Getter
+  @Setter
+  private long maxBytes = 64L * 1024 * 1024;
+  @Getter
+  @Setter
+  private long defaultTtlMillis = 60_000;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private final Map<String, Set<Key>> keysByTable = new HashMap<>();
+  private final Map<String, Long> generations = new HashMap<>();
+  private final Map<Class<?>, List<Field>> fieldsByClass = new ConcurrentHashMap<>();
+  private static final Map<Class<?>, Boolean> copyableTypes = new ConcurrentHashMap<>();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder invalidations = new LongAdder();
+  private long bytes = 0;
+  private long clearGeneration = 0;
+
+  Object get(Key key) {
+    lock.lock();
+    try {
+      Entry entry = entries.get(key);
+
+      if (entry != null && entry.expiresAt() - System.nanoTime() > 0) {
+        hits.increment();
+        return entry.value();
+      }
+
+      if (entry != null)
+        remove(key);
+      misses.increment();
+      return null;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  long generation(Set<String> tables) {
+    lock.lock();
+    try {
+      return generationLocked(tables);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  void put(Key key, Object value, Set<String> tables, long ttlMillis, long generation) {
+    long size = estimateSize(value) + estimateSize(key.sql()) + estimateSize(key.params());
+
+    if (size > maxBytes)
+      return;
+
+    Entry entry = new Entry(value, tables, System.nanoTime() + ttlMillis * 1_000_000, size);
+
+    lock.lock();
+    try {
+      if (generationLocked(tables) != generation)
+        return;
+
+      remove(key);
+      entries.put(key, entry);
+      bytes += size;
+
+      for (String table : tables) {
+        keysByTable.computeIfAbsent(table, t -> new HashSet<>()).add(key);
+      }
+
+      while ((entries.size() > maxEntries || bytes > maxBytes) && !entries.isEmpty()) {
+        remove(entries.keySet().iterator().next());
+        evictions.increment();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public void invalidate(Collection<String> tables) {
+    lock.lock();
+    try {
+      if (tables.isEmpty() || tables.contains(SqlStatements.ALL_TABLES)) {
+        invalidations.add(entries.size());
+        clearLocked();
+        return;
+      }
+
+      for (String table : tables) {
+        generations.merge(table, 1L, Long::sum);
+        Set<Key> keys = keysByTable.get(table);
+
+        if (keys == null)
+          continue;
+
+        for (Key key : new ArrayList<>(keys)) {
+          if (remove(key))
+            invalidations.increment();
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public void clear() {
+    lock.lock();
+    try {
+      clearLocked();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public QueryCacheStats getStats() {
+    lock.lock();
+    try {
+      return new QueryCacheStats(hits.sum(), misses.sum(), evictions.sum(),
+          invalidations.sum(), entries.size(), bytes);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void clearLocked() {
+    entries.clear();
+    keysByTable.clear();
+    bytes = 0;
+    clearGeneration++;
+  }
+
+  private long generationLocked(Set<String> tables) {
+    long generation = clearGeneration;
+
+    for (String table : tables) {
+      generation += generations.getOrDefault(table, 0L);
+    }
+    return generation;
+  }
+
+  private boolean remove(Key key) {
+    Entry entry = entries.remove(key);
+
+    if (entry == null)
+      return false;
+
+    bytes -= entry.bytes();
+    for (String table : entry.tables()) {
+      Set<Key> keys = keysByTable.get(table);
+
+      if (keys != null && keys.remove(key) && keys.isEmpty())
+        keysByTable.remove(table);
+    }
+    return true;
+  }
+
+  private long estimateSize(Object value) {
+    if (value == null)
+      return 0;
+    if (value instanceof String s)
+      return 40 + 2L * s.length();
+    if (value instanceof Number || value instanceof Boolean || value instanceof Character)
+      return 24;
+    if (value instanceof Temporal)
+      return 48;
+    if (value instanceof byte[] b)
+      return 16 + b.length;
+    if (value instanceof ColumnarResult columnar)
+      return columnar.estimateBytes();
+    if (value instanceof Map<?, ?> map) {
+      long size = 48 + 36L * map.size();
+      for (Map.Entry<?, ?> e : map.entrySet()) {
+        size += estimateSize(e.getKey()) + estimateSize(e.getValue());
+      }
+      return size;
+    }
+    if (value instanceof Collection<?> collection) {
+      long size = 24 + 8L * collection.size();
+      for (Object element : collection) {
+        size += estimateSize(element);
+      }
+      return size;
+    }
+
+    long size = 16;
+    for (Field field : fieldsOf(value.getClass())) {
+      try {
+        Object fieldValue = field.get(value);
+        size += field.getType().isPrimitive() ? 8 : 8 + estimateFieldSize(fieldValue);
+      } catch (IllegalAccessException e) {
+        size += 8;
+      }
+    }
+    return size;
+  }
+
+  private long estimateFieldSize(Object value) {
+    if (value == null || value instanceof String || value instanceof Number
+        || value instanceof Boolean || value instanceof Temporal || value instanceof byte[])
+      return estimateSize(value);
+    return 16;
+  }
+
+  private List<Field> fieldsOf(Class<?> clazz) {
+    return fieldsByClass.computeIfAbsent(clazz, c -> {
+      List<Field> fields = new ArrayList<>();
+
+      for (Class<?> t = c; t != null && t != Object.class; t = t.getSuperclass()) {
+        for (Field field : t.getDeclaredFields()) {
+          if (Modifier.isStatic(field.getModifiers()) || !field.trySetAccessible())
+            continue;
+          fields.add(field);
+        }
+      }
+      return fields;
+    });
+  }
+
+  static boolean isCacheable(Class<?> type) {
+    return copyableTypes.computeIfAbsent(type, QueryCache::isCopyable);
+  }
+
+  @SuppressWarnings("unchecked")
+  static Object copyOf(Object value) {
+    if (value instanceof List<?> list) {
+      List<Object> copy = new ArrayList<>(list.size());
+      for (Object element : list) {
+        copy.add(copyOf(element));
+      }
+      return copy;
+    }
+    if (value instanceof Map<?, ?> map)
+      return new HashMap<>((Map<String, Object>) map);
+    if (value == null || isImmutable(value.getClass()))
+      return value;
+
+    EntityInfo info = EntityInfo.of(value.getClass());
+    Object copy = RowMappers.newInstance(value.getClass());
+
+    try {
+      for (EntityInfo.Property property : info.columns()) {
+        property.setter().invoke(copy, property.read(value));
+      }
+    } catch (Throwable e) {
+      throw new IllegalStateException("Failed to copy " + value.getClass().getName(), e);
+    }
+    return copy;
+  }
+
+  private static boolean isCopyable(Class<?> type) {
+    if (type == ColumnarResult.class || type.isArray())
+      return false;
+    if (Map.class.isAssignableFrom(type) || List.class.isAssignableFrom(type)
+        || isImmutable(type))
+      return true;
+
+    try {
+      RowMappers.newInstance(type);
+    } catch (RuntimeException e) {
+      return false;
+    }
+    return EntityInfo.of(type).columns().stream().allMatch(p -> p.setter() != null);
+  }
+
+  private static boolean isImmutable(Class<?> type) {
+    return type == String.class || type == Boolean.class || type == Character.class
+        || Number.class.isAssignableFrom(type) && type.getName().startsWith("java.lang.")
+        || type == BigDecimal.class || type == BigInteger.class
+        || Temporal.class.isAssignableFrom(type) && type.getName().startsWith("java.time.")
+        || type.isRecord() || type.isInterface() || Proxy.isProxyClass(type) || type.isEnum();
+  }
+
+  record Key(String sql, List<Object> params, Class<?> type, Class<?> elementType) {
+
+  }
+
+  private record Entry(Object value, Set<String> tables, long expiresAt, long bytes) {
+
+  }
+}
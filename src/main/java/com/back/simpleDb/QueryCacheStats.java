@@ -0,0 +1,16 @@
+package com.back.simpleDb;
+
+public record QueryCacheStats(
+    long hits,
+    long misses,
+    long evictions,
+    long invalidations,
+    int entries,
+    long bytes
+) {
+
+  public double hitRatio() {
+    long total = hits + misses;
+    return total == 0 ? 0.0 : (double) hits / total;
+  }
+}
@@ -0,0 +1,22 @@
+package com.back.simpleDb;
+
+import java.util.List;
+
+public record QueryEvent(
+    String sql,
+    List<Object> bindParams,
+    long prepareNanos,
+    long executeNanos,
+    long mappingNanos,
+    long rows,
+    Throwable error
+) {
+
+  public long totalNanos() {
+    return prepareNanos + executeNanos + mappingNanos;
+  }
+
+  public boolean failed() {
+    return error != null;
+  }
+}
@@ -0,0 +1,143 @@
+package com.back.simpleDb;
+
+import java.lang.reflect.Array;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.Getter;
+
+public class QueryTemplate {
+
+  private static final int MAX_SHAPES = 256;
+
+  private final Connection conn;
+  private final SimpleDb simpleDb;
+  @Getter
+  private final String sql;
+  private final String[] fragments;
+  private final Map<Shape, String> sqlByShape = new ConcurrentHashMap<>();
+
+  public QueryTemplate(Connection conn, String sql) {
+    this.conn = conn;
+    this.simpleDb = null;
+    this.sql = sql;
+    this.fragments = SqlMarkers.split(sql);
+  }
+
+  QueryTemplate(SimpleDb simpleDb, String sql) {
+    this.conn = null;
+    this.simpleDb = simpleDb;
+    this.sql = sql;
+    this.fragments = SqlMarkers.split(sql);
+  }
+
+  public int getParameterCount() {
+    return fragments.length - 1;
+  }
+
+  public Sql bind(Object... bindParams) {
+    if (bindParams.length != getParameterCount())
+      throw new IllegalArgumentException("Expected %d parameters but got %d: %s"
+          .formatted(getParameterCount(), bindParams.length, sql));
+
+    int[] sizes = null;
+
+    for (int i = 0; i < bindParams.length; i++) {
+      int size = listSize(bindParams[i]);
+
+      if (size < 0)
+        continue;
+      if (sizes == null) {
+        sizes = new int[bindParams.length];
+        Arrays.fill(sizes, -1);
+      }
+      sizes[i] = SqlMarkers.bucket(size);
+    }
+
+    if (sizes == null)
+      return new Sql(conn, simpleDb, sql, Arrays.asList(bindParams));
+
+    return new Sql(conn, simpleDb, expandedSql(new Shape(sizes)), flatten(bindParams, sizes));
+  }
+
+  private String expandedSql(Shape shape) {
+    String expanded = sqlByShape.get(shape);
+
+    if (expanded != null)
+      return expanded;
+
+    StringBuilder sb = new StringBuilder(sql.length() + 64);
+    for (int i = 0; i < shape.sizes().length; i++) {
+      sb.append(fragments[i]).append(shape.sizes()[i] < 0 ? "?" : SqlMarkers.of(shape.sizes()[i]));
+    }
+    expanded = sb.append(fragments[fragments.length - 1]).toString();
+
+    if (sqlByShape.size() < MAX_SHAPES)
+      sqlByShape.put(shape, expanded);
+
+    return expanded;
+  }
+
+  private List<Object> flatten(Object[] bindParams, int[] sizes) {
+    List<Object> params = new ArrayList<>(bindParams.length + 16);
+
+    for (int i = 0; i < bindParams.length; i++) {
+      if (sizes[i] < 0) {
+        params.add(bindParams[i]);
+        continue;
+      }
+
+      Object last = null;
+      int added = 0;
+      for (Object element : elements(bindParams[i])) {
+        params.add(element);
+        last = element;
+        added++;
+      }
+      for (; added < sizes[i] && added > 0; added++) {
+        params.add(last);
+      }
+    }
+
+    return params;
+  }
+
+  private static int listSize(Object param) {
+    if (param instanceof Collection<?> collection)
+      return collection.size();
+    if (param != null && param.getClass().isArray() && !(param instanceof byte[]))
+      return Array.getLength(param);
+    return -1;
+  }
+
+  private static Iterable<?> elements(Object param) {
+    if (param instanceof Collection<?> collection)
+      return collection;
+    if (param instanceof Object[] array)
+      return Arrays.asList(array);
+
+    int length = Array.getLength(param);
+    List<Object> list = new ArrayList<>(length);
+    for (int i = 0; i < length; i++) {
+      list.add(Array.get(param, i));
+    }
+    return list;
+  }
+
+  private record Shape(int[] sizes) {
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Shape shape && Arrays.equals(sizes, shape.sizes);
+    }
+
+    @Override
+    public int hashCode() {
+      return Arrays.hashCode(sizes);
+    }
+  }
+}
@@ -0,0 +1,65 @@
+package com.back.simpleDb;
+
+import java.util.List;
+
+class QueryTimer {
+
+  private final SimpleDb simpleDb;
+  private final String sql;
+  private final List<Object> bindParams;
+  private ConcurrencyLimiter.Permit permit;
+  private final long startedAt;
+  private long preparedAt = 0;
+  private long executedAt = 0;
+  private long mappedAt = 0;
+  private long rows = -1;
+  private Throwable error = null;
+
+  QueryTimer(SimpleDb simpleDb, String sql, List<Object> bindParams) {
+    this.simpleDb = simpleDb;
+    this.sql = sql;
+    this.bindParams = bindParams;
+    this.permit = simpleDb != null ? simpleDb.admit(sql) : null;
+    this.startedAt = System.nanoTime();
+  }
+
+  void prepared() {
+    preparedAt = System.nanoTime();
+  }
+
+  void executed() {
+    executedAt = System.nanoTime();
+  }
+
+  void mapped(long rows) {
+    mappedAt = System.nanoTime();
+    this.rows = rows;
+  }
+
+  void failed(Throwable error) {
+    this.error = error;
+  }
+
+  void releasePermit() {
+    if (permit == null)
+      return;
+
+    permit.release(error);
+    permit = null;
+  }
+
+  void finish() {
+    releasePermit();
+
+    if (simpleDb == null)
+      return;
+
+    long now = System.nanoTime();
+    long prepared = preparedAt != 0 ? preparedAt : now;
+    long executed = executedAt != 0 ? executedAt : Math.max(prepared, now);
+    long mapped = mappedAt != 0 ? mappedAt : executedAt != 0 ? now : executed;
+
+    simpleDb.publish(new QueryEvent(sql, bindParams, prepared - startedAt,
+        executed - prepared, mapped - executed, rows, error));
+  }
+}
@@ -0,0 +1,6 @@
+package com.back.simpleDb;
+
+public enum ReplicaSelection {
+  ROUND_ROBIN,
+  LEAST_LOADED
+}
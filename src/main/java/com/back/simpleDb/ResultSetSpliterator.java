@@ -0,0 +1,81 @@
+package com.back.simpleDb;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import org.junit.platform.commons.logging.Logger;
+import org.junit.platform.commons.logging.LoggerFactory;
+
+class ResultSetSpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+
+  private final Statement statement;
+  private final ResultSet rs;
+  private final SQLExceptionFunction<ResultSet, T> mapper;
+  private final QueryTimer timer;
+  private final Logger logger = LoggerFactory.getLogger(ResultSetSpliterator.class);
+  private long rows = 0;
+  private boolean closed = false;
+
+  ResultSetSpliterator(Statement statement, ResultSet rs,
+      SQLExceptionFunction<ResultSet, T> mapper, QueryTimer timer) {
+    super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+    this.statement = statement;
+    this.rs = rs;
+    this.mapper = mapper;
+    this.timer = timer;
+  }
+
+  @Override
+  public boolean tryAdvance(Consumer<? super T> action) {
+    if (closed)
+      return false;
+
+    try {
+      if (!rs.next()) {
+        close();
+        return false;
+      }
+
+      T row = mapper.apply(rs);
+      rows++;
+      action.accept(row);
+      return true;
+    } catch (SQLException e) {
+      close(e);
+      logger.error(e, () -> "Failed to read streamed row: %s".formatted(e.getMessage()));
+      throw new RuntimeException("Failed to read streamed row", e);
+    }
+  }
+
+  void close() {
+    close(null);
+  }
+
+  private void close(Throwable error) {
+    if (closed)
+      return;
+
+    closed = true;
+
+    try {
+      rs.close();
+    } catch (SQLException e) {
+      logger.error(e, () -> "Failed to close result set: %s".formatted(e.getMessage()));
+    }
+
+    try {
+      statement.close();
+    } catch (SQLException e) {
+      logger.error(e, () -> "Failed to close statement: %s".formatted(e.getMessage()));
+    }
+
+    if (error != null)
+      timer.failed(error);
+    else
+      timer.mapped(rows);
+    timer.finish();
+  }
+}
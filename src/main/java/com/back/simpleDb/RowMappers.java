@@ -0,0 +1,442 @@
+package com.back.simpleDb;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.RecordComponent;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+final class RowMappers {
+
+  private static final Map<Class<?>, TypeInfo> typeInfos = new ConcurrentHashMap<>();
+  private static final Map<MapperKey, SQLExceptionFunction<ResultSet, ?>> mappers =
+      new ConcurrentHashMap<>();
+
+  private RowMappers() {
+  }
+
+  @SuppressWarnings("unchecked")
+  static <T> SQLExceptionFunction<ResultSet, T> forResultSet(
+      Class<T> clazz,
+      ResultSetMetaData meta
+  ) throws SQLException {
+    String[] labels = columnLabels(meta);
+    MapperKey key = new MapperKey(clazz, Arrays.asList(labels));
+    SQLExceptionFunction<ResultSet, ?> mapper = mappers.get(key);
+
+    if (mapper == null)
+      mapper = mappers.computeIfAbsent(key, k -> compile(clazz, labels));
+
+    return (SQLExceptionFunction<ResultSet, T>) mapper;
+  }
+
+  static SQLExceptionFunction<ResultSet, Map<String, Object>> forMap(ResultSetMetaData meta)
+      throws SQLException {
+    int colCnt = meta.getColumnCount();
+    String[] names = new String[colCnt];
+    JdbcTypes.Extractor[] extractors = new JdbcTypes.Extractor[colCnt];
+
+    for (int i = 0; i < colCnt; i++) {
+      names[i] = meta.getColumnName(i + 1);
+      extractors[i] = JdbcTypes.extractorFor(meta, i + 1);
+    }
+
+    int capacity = (int) (colCnt / 0.75f) + 1;
+
+    return rs -> {
+      Map<String, Object> row = new HashMap<>(capacity);
+
+      for (int i = 0; i < names.length; i++) {
+        row.put(names[i], extractors[i].read(rs, i + 1));
+      }
+
+      return row;
+    };
+  }
+
+  private static String[] columnLabels(ResultSetMetaData meta) throws SQLException {
+    String[] labels = new String[meta.getColumnCount()];
+
+    for (int i = 0; i < labels.length; i++) {
+      labels[i] = meta.getColumnLabel(i + 1);
+    }
+
+    return labels;
+  }
+
+  static boolean isProjection(Class<?> clazz) {
+    return clazz.isRecord() || clazz.isInterface() && !Map.class.isAssignableFrom(clazz)
+        && !List.class.isAssignableFrom(clazz)
+        || !EntityInfo.of(clazz).lazyColumns().isEmpty();
+  }
+
+  static boolean maps(Class<?> clazz, String label) {
+    return typeInfo(clazz).properties().containsKey(normalize(label));
+  }
+
+  static Object newInstance(Class<?> clazz) {
+    TypeInfo info = typeInfo(clazz);
+
+    if (info.constructorArity() >= 0)
+      throw new IllegalArgumentException("Not a bean type: " + clazz.getName());
+
+    try {
+      return info.constructor().invoke();
+    } catch (Throwable e) {
+      throw new IllegalStateException("Failed to instantiate " + clazz.getName(), e);
+    }
+  }
+
+  static void prepare(Class<?> clazz) {
+    for (Property property : typeInfo(clazz).properties().values()) {
+      JdbcTypes.extractorFor(property.type());
+    }
+
+    if (!clazz.isInterface())
+      EntityInfo.of(clazz);
+  }
+
+  private static TypeInfo typeInfo(Class<?> clazz) {
+    return typeInfos.computeIfAbsent(clazz, RowMappers::inspect);
+  }
+
+  private static <T> SQLExceptionFunction<ResultSet, T> compile(Class<T> clazz, String[] labels) {
+    TypeInfo info = typeInfo(clazz);
+
+    return info.constructorArity() >= 0
+        ? compileRecord(clazz, info, labels)
+        : compileBean(clazz, info, labels);
+  }
+
+  private static <T> SQLExceptionFunction<ResultSet, T> compileBean(
+      Class<T> clazz,
+      TypeInfo info,
+      String[] labels
+  ) {
+    int[] indexes = new int[labels.length];
+    ColumnWriter[] writers = new ColumnWriter[labels.length];
+    int cnt = 0;
+
+    for (int i = 0; i < labels.length; i++) {
+      Property property = info.properties().get(normalize(labels[i]));
+
+      if (property == null)
+        continue;
+
+      indexes[cnt] = i + 1;
+      writers[cnt] = writerFor(property.type(), property.setter());
+      cnt++;
+    }
+
+    int[] columnIndexes = Arrays.copyOf(indexes, cnt);
+    ColumnWriter[] columnWriters = Arrays.copyOf(writers, cnt);
+    MethodHandle constructor = info.constructor();
+
+    return rs -> {
+      try {
+        Object target = constructor.invoke();
+
+        for (int i = 0; i < columnIndexes.length; i++) {
+          columnWriters[i].write(target, rs, columnIndexes[i]);
+        }
+
+        return clazz.cast(target);
+      } catch (SQLException e) {
+        throw e;
+      } catch (Throwable e) {
+        throw new IllegalStateException("Failed to map row to " + clazz.getName(), e);
+      }
+    };
+  }
+
+  private static <T> SQLExceptionFunction<ResultSet, T> compileRecord(
+      Class<T> clazz,
+      TypeInfo info,
+      String[] labels
+  ) {
+    int arity = info.constructorArity();
+    Object[] defaults = new Object[arity];
+    int[] argIndexes = new int[labels.length];
+    int[] columnIndexes = new int[labels.length];
+    JdbcTypes.Extractor[] readers = new JdbcTypes.Extractor[labels.length];
+    int cnt = 0;
+
+    for (Property property : info.properties().values()) {
+      defaults[property.position()] = defaultValue(property.type());
+    }
+
+    for (int i = 0; i < labels.length; i++) {
+      Property property = info.properties().get(normalize(labels[i]));
+
+      if (property == null)
+        continue;
+
+      argIndexes[cnt] = property.position();
+      columnIndexes[cnt] = i + 1;
+      readers[cnt] = JdbcTypes.extractorFor(property.type());
+      cnt++;
+    }
+
+    int mappedCnt = cnt;
+    MethodHandle constructor = info.constructor().asSpreader(Object[].class, arity);
+
+    return rs -> {
+      Object[] args = defaults.clone();
+
+      for (int i = 0; i < mappedCnt; i++) {
+        Object value = readers[i].read(rs, columnIndexes[i]);
+
+        if (value != null)
+          args[argIndexes[i]] = value;
+      }
+
+      try {
+        return clazz.cast(constructor.invoke(args));
+      } catch (Throwable e) {
+        throw new IllegalStateException("Failed to map row to " + clazz.getName(), e);
+      }
+    };
+  }
+
+  private static TypeInfo inspect(Class<?> clazz) {
+    if (clazz.isInterface())
+      return inspectInterface(clazz);
+
+    try {
+      MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(clazz, MethodHandles.lookup());
+      Map<String, Property> properties = new LinkedHashMap<>();
+
+      if (clazz.isRecord()) {
+        RecordComponent[] components = clazz.getRecordComponents();
+        Class<?>[] types = new Class<?>[components.length];
+
+        for (int i = 0; i < components.length; i++) {
+          RecordComponent component = components[i];
+          types[i] = component.getType();
+          Property property = new Property(component.getType(), null, i);
+
+          properties.put(normalize(component.getName()), property);
+          JsonProperty alias = component.getAnnotation(JsonProperty.class);
+          if (alias != null && !alias.value().isEmpty())
+            properties.put(normalize(alias.value()), property);
+        }
+
+        Constructor<?> ctor = clazz.getDeclaredConstructor(types);
+        return new TypeInfo(lookup.unreflectConstructor(ctor), components.length, properties);
+      }
+
+      for (Class<?> c = clazz; c != null && c != Object.class; c = c.getSuperclass()) {
+        for (Field field : c.getDeclaredFields()) {
+          int mod = field.getModifiers();
+
+          if (Modifier.isStatic(mod) || Modifier.isFinal(mod) || field.getType() == Lazy.class)
+            continue;
+
+          MethodHandle setter = findSetter(clazz, field);
+          if (setter == null)
+            setter = MethodHandles.privateLookupIn(c, MethodHandles.lookup()).unreflectSetter(field);
+
+          Property property = new Property(field.getType(), setter, -1);
+          properties.putIfAbsent(normalize(field.getName()), property);
+          JsonProperty alias = field.getAnnotation(JsonProperty.class);
+          if (alias != null && !alias.value().isEmpty())
+            properties.putIfAbsent(normalize(alias.value()), property);
+        }
+      }
+
+      MethodHandle ctor = lookup.findConstructor(clazz, MethodType.methodType(void.class));
+      return new TypeInfo(ctor, -1, properties);
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("Cannot build row mapper for " + clazz.getName(), e);
+    }
+  }
+
+  private static TypeInfo inspectInterface(Class<?> clazz) {
+    Map<String, Property> properties = new LinkedHashMap<>();
+    Map<Method, Integer> positions = new HashMap<>();
+
+    for (Method method : clazz.getMethods()) {
+      if (Modifier.isStatic(method.getModifiers()) || method.isDefault()
+          || method.getParameterCount() > 0 || method.getReturnType() == void.class)
+        continue;
+
+      int position = positions.size();
+      Property property = new Property(method.getReturnType(), null, position);
+      positions.put(method, position);
+
+      properties.putIfAbsent(normalize(propertyName(method)), property);
+      properties.putIfAbsent(normalize(method.getName()), property);
+      JsonProperty alias = method.getAnnotation(JsonProperty.class);
+      if (alias != null && !alias.value().isEmpty())
+        properties.put(normalize(alias.value()), property);
+    }
+
+    try {
+      MethodHandle factory = MethodHandles.lookup().findStatic(RowMappers.class, "newProjection",
+          MethodType.methodType(Object.class, Class.class, Map.class, Object[].class));
+      MethodHandle constructor = MethodHandles.insertArguments(factory, 0, clazz, positions)
+          .asCollector(Object[].class, positions.size());
+      return new TypeInfo(constructor, positions.size(), properties);
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("Cannot build row mapper for " + clazz.getName(), e);
+    }
+  }
+
+  private static String propertyName(Method method) {
+    String name = method.getName();
+
+    if (name.startsWith("get") && name.length() > 3)
+      return name.substring(3);
+    if (name.startsWith("is") && name.length() > 2
+        && (method.getReturnType() == boolean.class || method.getReturnType() == Boolean.class))
+      return name.substring(2);
+    return name;
+  }
+
+  private static Object newProjection(Class<?> type, Map<Method, Integer> positions,
+      Object[] values) {
+    return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+        new ProjectionHandler(type, positions, values));
+  }
+
+  private static MethodHandle findSetter(Class<?> clazz, Field field) {
+    String name = field.getName();
+    String setterName = "set" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+
+    try {
+      Method setter = clazz.getMethod(setterName, field.getType());
+      return MethodHandles.publicLookup().unreflect(setter);
+    } catch (ReflectiveOperationException e) {
+      return null;
+    }
+  }
+
+  private static String normalize(String name) {
+    return name.replace("_", "").toLowerCase(Locale.ROOT);
+  }
+
+  private static Object defaultValue(Class<?> type) {
+    if (!type.isPrimitive())
+      return null;
+    if (type == boolean.class)
+      return false;
+    if (type == char.class)
+      return '\0';
+    if (type == long.class)
+      return 0L;
+    if (type == double.class)
+      return 0.0;
+    if (type == float.class)
+      return 0.0f;
+    if (type == int.class)
+      return 0;
+    if (type == short.class)
+      return (short) 0;
+    return (byte) 0;
+  }
+
+  private static ColumnWriter writerFor(Class<?> type, MethodHandle setter) {
+    if (type == long.class) {
+      MethodHandle h = setter.asType(MethodType.methodType(void.class, Object.class, long.class));
+      return (target, rs, i) -> {
+        h.invokeExact(target, rs.getLong(i));
+      };
+    }
+    if (type == int.class) {
+      MethodHandle h = setter.asType(MethodType.methodType(void.class, Object.class, int.class));
+      return (target, rs, i) -> {
+        h.invokeExact(target, rs.getInt(i));
+      };
+    }
+    if (type == boolean.class) {
+      MethodHandle h = setter.asType(
+          MethodType.methodType(void.class, Object.class, boolean.class));
+      return (target, rs, i) -> {
+        h.invokeExact(target, rs.getBoolean(i));
+      };
+    }
+    if (type == double.class) {
+      MethodHandle h = setter.asType(
+          MethodType.methodType(void.class, Object.class, double.class));
+      return (target, rs, i) -> {
+        h.invokeExact(target, rs.getDouble(i));
+      };
+    }
+
+    JdbcTypes.Extractor reader = JdbcTypes.extractorFor(type);
+    MethodHandle h = setter.asType(MethodType.methodType(void.class, Object.class, Object.class));
+
+    if (type.isPrimitive())
+      return (target, rs, i) -> {
+        Object value = reader.read(rs, i);
+        if (value != null)
+          h.invokeExact(target, value);
+      };
+
+    return (target, rs, i) -> {
+      h.invokeExact(target, reader.read(rs, i));
+    };
+  }
+
+  @FunctionalInterface
+  private interface ColumnWriter {
+
+    void write(Object target, ResultSet rs, int index) throws Throwable;
+  }
+
+  private record ProjectionHandler(
+      Class<?> type,
+      Map<Method, Integer> positions,
+      Object[] values
+  ) implements InvocationHandler {
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      Integer position = positions.get(method);
+
+      if (position != null)
+        return values[position];
+      if (method.isDefault())
+        return InvocationHandler.invokeDefault(proxy, method, args);
+
+      return switch (method.getName()) {
+        case "equals" -> proxy == args[0];
+        case "hashCode" -> System.identityHashCode(proxy);
+        case "toString" -> type.getSimpleName() + Arrays.toString(values);
+        default -> throw new UnsupportedOperationException(method.toString());
+      };
+    }
+  }
+
+  private record Property(Class<?> type, MethodHandle setter, int position) {
+
+  }
+
+  private record TypeInfo(
+      MethodHandle constructor,
+      int constructorArity,
+      Map<String, Property> properties
+  ) {
+
+  }
+
+  private record MapperKey(Class<?> type, List<String> labels) {
+
+  }
+}
@@ -0,0 +1,9 @@
+package com.back.simpleDb;
+
+import java.sql.SQLException;
+
+@FunctionalInterface
+public interface SQLExceptionSupplier<T> {
+
+  T get() throws SQLException;
+}
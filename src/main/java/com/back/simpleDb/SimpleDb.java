@@ -1,10 +1,25 @@
 package com.back.simpleDb;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Savepoint;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 import lombok.Getter;
 import lombok.Setter;
 import org.junit.platform.commons.logging.Logger;
@@ -18,30 +33,230 @@ public class SimpleDb {
   private final String user;
   @Getter
   private final String password;
+  private final String dbName;
   @Setter
   private boolean devMode = false;
 
-  private boolean isInTransaction = false;
-  private final ThreadLocal<Connection> threadLocalConn = new ThreadLocal<>();
+  @Getter
+  private final ConnectionPool connectionPool;
+  @Getter
+  private final QueryCache queryCache = new QueryCache();
+  @Getter
+  private final SimpleDbMetrics metrics = new SimpleDbMetrics();
+  private final List<SimpleDbListener> listeners = new CopyOnWriteArrayList<>(List.of(metrics));
+  @Getter
+  @Setter
+  private long slowQueryThresholdMillis = -1;
+  private final List<Replica> replicas = new CopyOnWriteArrayList<>();
+  private final List<WriteBehind> writeBehinds = new CopyOnWriteArrayList<>();
+  private final AtomicInteger nextReplica = new AtomicInteger();
+  private final AtomicLong maxAllowedPacket = new AtomicLong(-1);
+  private final AtomicReference<String> serverVersion = new AtomicReference<>();
+  @Getter
+  @Setter
+  private ReplicaSelection replicaSelection = ReplicaSelection.ROUND_ROBIN;
+  @Getter
+  @Setter
+  private long readYourWritesMillis = 0;
+  @Getter
+  @Setter
+  private boolean identityMapEnabled = false;
+  @Getter
+  @Setter
+  private volatile SimpleDbBackend backend = SimpleDbBackend.JDBC;
+  private final Properties connectionProperties = new Properties();
+
+  private static final int ER_LOCK_WAIT_TIMEOUT = 1205;
+  private static final int ER_LOCK_DEADLOCK = 1213;
+
+  private final ThreadLocal<PooledConnection> threadLocalConn = new ThreadLocal<>();
+  private final ThreadLocal<PooledConnection> threadLocalReplicaConn = new ThreadLocal<>();
+  private final ThreadLocal<Long> lastWriteAt = new ThreadLocal<>();
+  private final AtomicReference<Semaphore> scopePermits = new AtomicReference<>();
+  private final AtomicReference<ExecutorService> asyncExecutor = new AtomicReference<>();
+  private final AtomicReference<WarmUpOptions> pendingWarmUp = new AtomicReference<>();
+  @Getter
+  private volatile WarmUpReport warmUpReport;
+  @Getter
+  private volatile ConcurrencyLimiter concurrencyLimiter;
+  @Setter
+  private int asyncQueueCapacity = 10_000;
   private final Logger logger = LoggerFactory.getLogger(SimpleDb.class);
 
   public SimpleDb(String host, String user, String password, String dbName) {
-    this.url = "jdbc:mysql://" + host + ":3307/" + dbName
-        + "?serverTimezone=Asia/Seoul&characterEncoding=utf8";
+    this(host, 3307, user, password, dbName);
+  }
+
+  public SimpleDb(String host, int port, String user, String password, String dbName) {
+    this.url = jdbcUrl(host, port, dbName);
     this.user = user;
     this.password = password;
+    this.dbName = dbName;
+    this.connectionProperties.setProperty("user", user);
+    this.connectionProperties.setProperty("password", password);
+    this.connectionPool = new ConnectionPool(
+        () -> backend.connect(this.url, connectionProperties));
+  }
+
+  public SimpleDb addReplica(String host, int port) {
+    String replicaUrl = jdbcUrl(host, port, dbName);
+    replicas.add(new Replica(replicaUrl, new ConnectionPool(
+        () -> backend.connect(replicaUrl, connectionProperties))));
+    return this;
+  }
+
+  public List<ConnectionPool> getReplicaPools() {
+    return replicas.stream().map(Replica::pool).toList();
+  }
+
+  public void setRewriteBatchedStatements(boolean rewriteBatchedStatements) {
+    connectionProperties.setProperty("rewriteBatchedStatements",
+        String.valueOf(rewriteBatchedStatements));
+  }
+
+  public void setAllowMultiQueries(boolean allowMultiQueries) {
+    connectionProperties.setProperty("allowMultiQueries", String.valueOf(allowMultiQueries));
+  }
+
+  public boolean isAllowMultiQueries() {
+    return Boolean.parseBoolean(connectionProperties.getProperty("allowMultiQueries"));
   }
 
   public Connection getConnection() {
-    Connection conn = threadLocalConn.get();
+    return getPooledConnection().getProxy();
+  }
 
-    if (conn != null)
-      return conn;
+  Connection getConnection(String sql) {
+    if (replicas.isEmpty() || isInTransaction() || wroteRecently()
+        || !SqlStatements.isReplicaSafe(sql))
+      return getConnection();
+
+    PooledConnection pc = threadLocalReplicaConn.get();
+
+    if (pc != null)
+      return pc.getProxy();
+
+    Replica replica = selectReplica();
 
     try {
-      conn = DriverManager.getConnection(url, user, password);
-      threadLocalConn.set(conn);
-      return conn;
+      pc = borrowPooled(replica.pool());
+      threadLocalReplicaConn.set(pc);
+      return pc.getProxy();
+    } catch (SQLException e) {
+      logger.warn(e, () -> "Replica connection failed, reading from primary: %s, url: %s"
+          .formatted(e.getMessage(), replica.url()));
+      return getConnection();
+    }
+  }
+
+  public WarmUpReport warmUp(WarmUpOptions options) {
+    long startedAt = System.nanoTime();
+
+    for (Class<?> entity : options.getEntities()) {
+      RowMappers.prepare(entity);
+    }
+
+    List<WarmUpOptions.HotStatement> statements = options.statements().stream()
+        .map(statement -> statement.appended()
+            ? new WarmUpOptions.HotStatement(genSql().append(statement.sql()).sql(),
+                statement.autoGeneratedKeys(), false)
+            : statement)
+        .toList();
+    long connectStartedAt = System.nanoTime();
+    AtomicInteger statementCnt = new AtomicInteger();
+    SQLExceptionFunction<PooledConnection, ?> initializer = pc -> {
+      for (WarmUpOptions.HotStatement statement : statements) {
+        if (pc.prepare(statement.sql(), statement.autoGeneratedKeys()))
+          statementCnt.incrementAndGet();
+      }
+      return null;
+    };
+    int connectionCnt;
+
+    try {
+      connectionCnt = connectionPool.prefill(initializer);
+
+      for (Replica replica : replicas) {
+        connectionCnt += replica.pool().prefill(initializer);
+      }
+    } catch (SQLException e) {
+      logger.error(e, () -> "Warm-up failed: %s, url: %s, user: %s"
+          .formatted(e.getMessage(), url, user));
+      throw new RuntimeException("Warm-up failed", e);
+    }
+
+    long finishedAt = System.nanoTime();
+    WarmUpReport report = new WarmUpReport(connectionCnt, statementCnt.get(),
+        options.getEntities().size(), connectStartedAt - startedAt,
+        finishedAt - connectStartedAt, finishedAt - startedAt);
+
+    warmUpReport = report;
+    logger.info(() -> ("Warm-up finished (%.3fms; mappers: %.3fms, connections: %.3fms), "
+        + "connections: %d, statements: %d, mappers: %d").formatted(
+        report.totalNanos() / 1_000_000.0, report.mapperNanos() / 1_000_000.0,
+        report.connectNanos() / 1_000_000.0, report.connectionCnt(), report.statementCnt(),
+        report.mapperCnt()));
+    return report;
+  }
+
+  public void warmUpOnFirstUse(WarmUpOptions options) {
+    pendingWarmUp.set(options);
+  }
+
+  private void runPendingWarmUp() {
+    WarmUpOptions options = pendingWarmUp.getAndSet(null);
+
+    if (options == null)
+      return;
+
+    try {
+      warmUp(options);
+    } catch (RuntimeException e) {
+      logger.warn(e, () -> "Deferred warm-up failed: %s".formatted(e.getMessage()));
+    }
+  }
+
+  private Replica selectReplica() {
+    if (replicaSelection == ReplicaSelection.LEAST_LOADED) {
+      Replica selected = null;
+      int minActive = Integer.MAX_VALUE;
+
+      for (Replica replica : replicas) {
+        int active = replica.pool().getStats().active();
+
+        if (active < minActive) {
+          selected = replica;
+          minActive = active;
+        }
+      }
+      return selected;
+    }
+
+    return replicas.get(Math.floorMod(nextReplica.getAndIncrement(), replicas.size()));
+  }
+
+  private boolean wroteRecently() {
+    Long writtenAt = lastWriteAt.get();
+
+    return writtenAt != null && readYourWritesMillis > 0
+        && System.nanoTime() - writtenAt < readYourWritesMillis * 1_000_000;
+  }
+
+  private static String jdbcUrl(String host, int port, String dbName) {
+    return "jdbc:mysql://" + host + ":" + port + "/" + dbName
+        + "?serverTimezone=Asia/Seoul&characterEncoding=utf8";
+  }
+
+  private PooledConnection getPooledConnection() {
+    PooledConnection pc = threadLocalConn.get();
+
+    if (pc != null)
+      return pc;
+
+    try {
+      pc = borrowPooled(connectionPool);
+      threadLocalConn.set(pc);
+      return pc;
     } catch (SQLException e) {
       logger.error(() -> "DB connection failed: %s, url: %s, user: %s"
           .formatted(e.getMessage(), url, user));
@@ -51,47 +266,392 @@ public class SimpleDb {
 
   public void run(String sql, Object... params) {
     Connection conn = getConnection();
+    QueryTimer timer = new QueryTimer(this, sql, Arrays.asList(params));
 
     try (PreparedStatement ps = conn.prepareStatement(sql)) {
-      for (int i = 0; i < params.length; i++) {
-        ps.setObject(i + 1, params[i]);
-      }
+      JdbcTypes.bindAll(ps, params);
 
-      ps.executeUpdate();
+      timer.prepared();
+      int affectedRowsCnt = ps.executeUpdate();
+      timer.executed();
+      timer.mapped(affectedRowsCnt);
+      onWrite(sql);
     } catch (SQLException e) {
+      timer.failed(e);
       logger.error(e, () -> "SQL execution failed: %s, SQL: %s, bindParams: %s"
           .formatted(e.getMessage(), sql, Arrays.toString(params)));
       throw new RuntimeException("SQL execution failed", e);
+    } finally {
+      timer.finish();
     }
   }
 
+  public CompletableFuture<Void> runAsync(String sql, Object... params) {
+    return supplyAsync(() -> {
+      run(sql, params);
+      return null;
+    });
+  }
+
   public Sql genSql() {
-    return new Sql(getConnection());
+    return new Sql(this);
+  }
+
+  public Batch genBatch(String sql) {
+    return new Batch(this, sql);
+  }
+
+  public QueryTemplate genTemplate(String sql) {
+    return new QueryTemplate(this, sql);
+  }
+
+  public Pipeline multi() {
+    return new Pipeline(this);
+  }
+
+  public WriteBehind openWriteBehind() {
+    return openWriteBehind(new WriteBehindOptions());
+  }
+
+  public WriteBehind openWriteBehind(WriteBehindOptions options) {
+    WriteBehind writeBehind = new WriteBehind(this, options);
+    writeBehinds.add(writeBehind);
+    return writeBehind;
+  }
+
+  void onWriteBehindClosed(WriteBehind writeBehind) {
+    writeBehinds.remove(writeBehind);
+  }
+
+  public <T> T find(Class<T> clazz, String table, Object id) {
+    if (!table.matches("[\\w$]+"))
+      throw new IllegalArgumentException("Invalid table name: " + table);
+
+    EntityInfo info = EntityInfo.of(clazz);
+    String idColumn = info.id() != null ? info.id().column() : "id";
+
+    return genSql()
+        .append("SELECT * FROM `%s` WHERE `%s` = ?".formatted(table, idColumn), id)
+        .selectRow(clazz);
+  }
+
+  public void flush() {
+    UnitOfWork unitOfWork = currentUnitOfWork();
+
+    if (unitOfWork != null)
+      unitOfWork.flush(this);
+  }
+
+  <T> T findManaged(Class<T> clazz, String sql, List<Object> bindParams) {
+    UnitOfWork unitOfWork = currentUnitOfWork();
+
+    if (unitOfWork == null || bindParams.size() != 1)
+      return null;
+
+    SqlStatements.IdLookup lookup = SqlStatements.idLookup(sql);
+
+    if (lookup == null)
+      return null;
+
+    return unitOfWork.find(clazz, lookup.table(), lookup.idColumn(), bindParams.get(0));
+  }
+
+  Object track(String sql, Object result) {
+    UnitOfWork unitOfWork = currentUnitOfWork();
+    return unitOfWork != null ? unitOfWork.track(sql, result) : result;
+  }
+
+  private UnitOfWork currentUnitOfWork() {
+    PooledConnection pc = threadLocalConn.get();
+    return pc != null && pc.isInTransaction() ? pc.getUnitOfWork() : null;
+  }
+
+  public <T> List<Long> insertAll(String table, List<T> entities) {
+    return new BulkWriter(this, maxStatementBytes()).insertAll(table, entities);
+  }
+
+  public <T> long upsertAll(String table, List<T> entities, String... updateColumns) {
+    return new BulkWriter(this, maxStatementBytes()).upsertAll(table, entities, updateColumns);
+  }
+
+  private long maxStatementBytes() {
+    long packet = maxAllowedPacket.get();
+
+    if (packet < 0) {
+      packet = genSql().append("SELECT @@max_allowed_packet").selectLong();
+      maxAllowedPacket.set(packet);
+    }
+
+    return packet * 3 / 4;
+  }
+
+  boolean supportsInsertRowAlias() {
+    String version = serverVersion.get();
+
+    if (version == null) {
+      version = genSql().append("SELECT VERSION()").selectString();
+      serverVersion.set(version);
+    }
+
+    if (version.contains("MariaDB"))
+      return false;
+
+    String[] parts = version.split("[.-]");
+
+    try {
+      int major = Integer.parseInt(parts[0]);
+      int minor = Integer.parseInt(parts[1]);
+      int patch = Integer.parseInt(parts[2]);
+
+      return major > 8 || major == 8 && (minor > 0 || patch >= 19);
+    } catch (RuntimeException e) {
+      return false;
+    }
+  }
+
+  public QueryCacheStats getQueryCacheStats() {
+    return queryCache.getStats();
+  }
+
+  public void addListener(SimpleDbListener listener) {
+    listeners.add(listener);
+  }
+
+  public void removeListener(SimpleDbListener listener) {
+    listeners.remove(listener);
+  }
+
+  void publish(QueryEvent event) {
+    for (SimpleDbListener listener : listeners) {
+      try {
+        listener.onQuery(event);
+      } catch (RuntimeException e) {
+        logger.error(e, () -> "Query listener failed: %s".formatted(e.getMessage()));
+      }
+    }
+
+    if (devMode)
+      logger.info(() -> "SQL (%.3fms, rows: %d): %s, bindParams: %s"
+          .formatted(event.totalNanos() / 1_000_000.0, event.rows(), event.sql().strip(),
+              event.bindParams()));
+
+    if (slowQueryThresholdMillis >= 0
+        && event.totalNanos() >= slowQueryThresholdMillis * 1_000_000)
+      logger.warn(() -> ("Slow query (%.3fms; prepare: %.3fms, execute: %.3fms, mapping: %.3fms, "
+          + "rows: %d): %s, bindParams: %s").formatted(event.totalNanos() / 1_000_000.0,
+          event.prepareNanos() / 1_000_000.0, event.executeNanos() / 1_000_000.0,
+          event.mappingNanos() / 1_000_000.0, event.rows(), event.sql().strip(),
+          event.bindParams()));
+  }
+
+  private PooledConnection borrowPooled(ConnectionPool pool) throws SQLException {
+    if (pendingWarmUp.get() != null)
+      runPendingWarmUp();
+
+    long startedAt = System.nanoTime();
+    PooledConnection pc = pool.borrowPooled();
+    long waitNanos = System.nanoTime() - startedAt;
+
+    for (SimpleDbListener listener : listeners) {
+      try {
+        listener.onConnectionAcquired(waitNanos);
+      } catch (RuntimeException e) {
+        logger.error(e, () -> "Connection listener failed: %s".formatted(e.getMessage()));
+      }
+    }
+
+    return pc;
+  }
+
+  void onWrite(String sql) {
+    Set<String> tables = SqlStatements.tables(sql);
+    queryCache.invalidate(tables);
+
+    if (readYourWritesMillis > 0)
+      lastWriteAt.set(System.nanoTime());
+
+    PooledConnection pc = threadLocalConn.get();
+
+    if (pc != null && pc.isInTransaction())
+      pc.addWrittenTables(tables.isEmpty() ? Set.of(SqlStatements.ALL_TABLES) : tables);
+  }
+
+  public ConcurrencyLimiter enableConcurrencyLimit(ConcurrencyLimitOptions options) {
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter(options);
+    concurrencyLimiter = limiter;
+    return limiter;
+  }
+
+  public void disableConcurrencyLimit() {
+    concurrencyLimiter = null;
+  }
+
+  ConcurrencyLimiter.Permit admit(String sql) {
+    ConcurrencyLimiter limiter = concurrencyLimiter;
+
+    if (limiter == null)
+      return null;
+
+    return limiter.acquire(SqlStatements.isSelect(sql) ? QueryLane.READ : QueryLane.WRITE);
+  }
+
+  public void setMaxConcurrentScopes(int maxConcurrentScopes) {
+    scopePermits.set(new Semaphore(maxConcurrentScopes, true));
+  }
+
+  public ConnectionScope openScope() {
+    PooledConnection previous = threadLocalConn.get();
+
+    if (previous != null)
+      return new ConnectionScope(this, previous, null, null);
+
+    Semaphore permits = scopePermits.updateAndGet(p -> p != null
+        ? p : new Semaphore(connectionPool.getMaxSize(), true));
+    acquirePermit(permits);
+
+    try {
+      PooledConnection pc = borrowPooled(connectionPool);
+      threadLocalConn.set(pc);
+      return new ConnectionScope(this, null, pc, permits);
+    } catch (SQLException | RuntimeException e) {
+      permits.release();
+      logger.error(() -> "DB connection failed: %s, url: %s, user: %s"
+          .formatted(e.getMessage(), url, user));
+      throw new RuntimeException("DB connection failed", e);
+    }
+  }
+
+  public void withConnection(Runnable callback) {
+    try (ConnectionScope scope = openScope()) {
+      callback.run();
+    }
+  }
+
+  public <T> T withConnection(Supplier<T> callback) {
+    try (ConnectionScope scope = openScope()) {
+      return callback.get();
+    }
+  }
+
+  public <T> CompletableFuture<T> supplyAsync(Supplier<T> task) {
+    return CompletableFuture.supplyAsync(() -> withConnection(task), getAsyncExecutor());
+  }
+
+  public void setAsyncExecutor(ExecutorService executor) {
+    ExecutorService old = asyncExecutor.getAndSet(executor);
+
+    if (old != null && old != executor)
+      old.shutdown();
+  }
+
+  public ExecutorService getAsyncExecutor() {
+    ExecutorService executor = asyncExecutor.get();
+
+    if (executor != null)
+      return executor;
+
+    int threads = connectionPool.getMaxSize();
+    AtomicInteger threadNo = new AtomicInteger();
+    ExecutorService created = new ThreadPoolExecutor(threads, threads,
+        60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(asyncQueueCapacity), runnable -> {
+      Thread thread = new Thread(runnable, "SimpleDb-async-" + threadNo.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    if (asyncExecutor.compareAndSet(null, created))
+      return created;
+
+    created.shutdown();
+    return asyncExecutor.get();
+  }
+
+  void endScope(PooledConnection lent, Semaphore permits) {
+    if (lent == null)
+      return;
+
+    try {
+      close();
+    } finally {
+      permits.release();
+    }
+  }
+
+  private void acquirePermit(Semaphore permits) {
+    long timeout = connectionPool.getBorrowTimeoutMillis();
+
+    try {
+      if (!permits.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+        logger.error(() -> "Timed out after %dms waiting for DB access".formatted(timeout));
+        throw new RuntimeException("Timed out waiting for DB access");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while waiting for DB access", e);
+    }
   }
 
   public void close() {
-    Connection conn = threadLocalConn.get();
+    release(threadLocalReplicaConn);
+    release(threadLocalConn);
+  }
+
+  private void release(ThreadLocal<PooledConnection> holder) {
+    PooledConnection pc = holder.get();
 
-    if (conn == null)
+    if (pc == null)
       return;
 
     try {
-      conn.close();
-      threadLocalConn.remove();
+      pc.getProxy().close();
     } catch (SQLException e) {
       logger.error(e, () -> "Failed to close DB connection: %s".formatted(e.getMessage()));
+    } finally {
+      holder.remove();
+    }
+  }
+
+  public PoolStats getPoolStats() {
+    return connectionPool.getStats();
+  }
+
+  public StatementCacheStats getStatementCacheStats() {
+    return connectionPool.getStatementCacheStats();
+  }
+
+  public void shutdown() {
+    writeBehinds.forEach(WriteBehind::close);
+
+    ExecutorService executor = asyncExecutor.getAndSet(null);
+
+    if (executor != null)
+      executor.shutdown();
+
+    close();
+    connectionPool.close();
+    replicas.forEach(replica -> replica.pool().close());
+
+    if (backend instanceof AutoCloseable closeable) {
+      try {
+        closeable.close();
+      } catch (Exception e) {
+        logger.error(e, () -> "Failed to close backend: %s".formatted(e.getMessage()));
+      }
     }
   }
 
   public void startTransaction() {
-    if (isInTransaction)
-      return;
+    PooledConnection pc = getPooledConnection();
 
-    Connection conn = getConnection();
+    if (pc.isInTransaction())
+      return;
 
     try {
-      conn.setAutoCommit(false);
-      isInTransaction = true;
+      pc.getProxy().setAutoCommit(false);
+      pc.setInTransaction(true);
+
+      if (identityMapEnabled)
+        pc.setUnitOfWork(new UnitOfWork());
     } catch (SQLException e) {
       logger.error(e, () -> "Failed to set auto commit: %s".formatted(e.getMessage()));
       throw new RuntimeException("Failed to start transaction", e);
@@ -99,12 +659,20 @@ public class SimpleDb {
   }
 
   public void commit() {
-    Connection conn = getConnection();
+    PooledConnection pc = getPooledConnection();
+
+    if (pc.getUnitOfWork() != null)
+      pc.getUnitOfWork().flush(this);
 
     try {
-      conn.commit();
-      conn.setAutoCommit(true);
-      isInTransaction = false;
+      pc.getProxy().commit();
+      pc.getProxy().setAutoCommit(true);
+      pc.setInTransaction(false);
+      pc.setUnitOfWork(null);
+
+      if (!pc.getWrittenTables().isEmpty())
+        queryCache.invalidate(pc.getWrittenTables());
+      pc.getWrittenTables().clear();
     } catch (SQLException e) {
       logger.error(e, () -> "Failed to commit: %s".formatted(e.getMessage()));
       throw new RuntimeException("Failed to commit", e);
@@ -112,15 +680,161 @@ public class SimpleDb {
   }
 
   public void rollback() {
-    Connection conn = getConnection();
+    PooledConnection pc = getPooledConnection();
 
     try {
-      conn.rollback();
-      conn.setAutoCommit(true);
-      isInTransaction = false;
+      pc.getProxy().rollback();
+      pc.getProxy().setAutoCommit(true);
+      pc.setInTransaction(false);
+      pc.setUnitOfWork(null);
+      pc.getWrittenTables().clear();
     } catch (SQLException e) {
       logger.error(e, () -> "Failed to rollback: %s".formatted(e.getMessage()));
-      throw new RuntimeException("Failed to commit", e);
+      throw new RuntimeException("Failed to rollback", e);
+    }
+  }
+
+  public boolean isInTransaction() {
+    PooledConnection pc = threadLocalConn.get();
+    return pc != null && pc.isInTransaction();
+  }
+
+  public void inTransaction(Runnable callback) {
+    inTransaction(new TransactionOptions(), () -> {
+      callback.run();
+      return null;
+    });
+  }
+
+  public <T> T inTransaction(Supplier<T> callback) {
+    return inTransaction(new TransactionOptions(), callback);
+  }
+
+  public <T> T inTransaction(TransactionOptions options, Supplier<T> callback) {
+    if (isInTransaction())
+      return inSavepoint(callback);
+
+    for (int attempt = 0; ; attempt++) {
+      try {
+        return runTransaction(options, callback);
+      } catch (RuntimeException e) {
+        if (attempt >= options.getMaxRetries() || !isRetryable(e))
+          throw e;
+
+        long backoff = backoffMillis(options, attempt);
+        int retry = attempt + 1;
+        logger.warn(e, () -> "Retrying transaction after %dms (retry %d of %d): %s"
+            .formatted(backoff, retry, options.getMaxRetries(), e.getMessage()));
+        sleep(backoff);
+      }
+    }
+  }
+
+  private <T> T runTransaction(TransactionOptions options, Supplier<T> callback) {
+    Connection conn = getConnection();
+    int oldIsolation;
+    boolean oldReadOnly;
+
+    try {
+      oldIsolation = conn.getTransactionIsolation();
+      oldReadOnly = conn.isReadOnly();
+
+      if (options.getIsolationLevel() != null)
+        conn.setTransactionIsolation(options.getIsolationLevel());
+      if (options.isReadOnly() != oldReadOnly)
+        conn.setReadOnly(options.isReadOnly());
+    } catch (SQLException e) {
+      logger.error(e, () -> "Failed to apply transaction options: %s".formatted(e.getMessage()));
+      throw new RuntimeException("Failed to start transaction", e);
+    }
+
+    try {
+      startTransaction();
+      T result = callback.get();
+      commit();
+      return result;
+    } catch (RuntimeException | Error e) {
+      if (isInTransaction())
+        rollbackQuietly(e);
+      throw e;
+    } finally {
+      try {
+        if (conn.getTransactionIsolation() != oldIsolation)
+          conn.setTransactionIsolation(oldIsolation);
+        if (conn.isReadOnly() != oldReadOnly)
+          conn.setReadOnly(oldReadOnly);
+      } catch (SQLException e) {
+        logger.error(e, () -> "Failed to restore transaction options: %s"
+            .formatted(e.getMessage()));
+      }
+    }
+  }
+
+  private <T> T inSavepoint(Supplier<T> callback) {
+    Connection conn = getConnection();
+    Savepoint savepoint;
+
+    try {
+      savepoint = conn.setSavepoint();
+    } catch (SQLException e) {
+      logger.error(e, () -> "Failed to set savepoint: %s".formatted(e.getMessage()));
+      throw new RuntimeException("Failed to start nested transaction", e);
     }
+
+    try {
+      T result = callback.get();
+      conn.releaseSavepoint(savepoint);
+      return result;
+    } catch (SQLException e) {
+      logger.error(e, () -> "Failed to release savepoint: %s".formatted(e.getMessage()));
+      throw new RuntimeException("Failed to commit nested transaction", e);
+    } catch (RuntimeException | Error e) {
+      try {
+        conn.rollback(savepoint);
+      } catch (SQLException rollbackError) {
+        e.addSuppressed(rollbackError);
+      }
+      throw e;
+    }
+  }
+
+  private void rollbackQuietly(Throwable cause) {
+    try {
+      rollback();
+    } catch (RuntimeException rollbackError) {
+      cause.addSuppressed(rollbackError);
+    }
+  }
+
+  private boolean isRetryable(Throwable e) {
+    for (Throwable t = e; t != null; t = t.getCause()) {
+      if (t instanceof SQLException sqlException) {
+        int errorCode = sqlException.getErrorCode();
+
+        if (errorCode == ER_LOCK_DEADLOCK || errorCode == ER_LOCK_WAIT_TIMEOUT
+            || "40001".equals(sqlException.getSQLState()))
+          return true;
+      }
+    }
+    return false;
+  }
+
+  private long backoffMillis(TransactionOptions options, int attempt) {
+    long backoff = Math.min(options.getMaxBackoffMillis(),
+        options.getInitialBackoffMillis() << Math.min(attempt, 20));
+    return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+  }
+
+  private void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while waiting to retry transaction", e);
+    }
+  }
+
+  private record Replica(String url, ConnectionPool pool) {
+
   }
 }
@@ -0,0 +1,14 @@
+package com.back.simpleDb;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Properties;
+
+@FunctionalInterface
+public interface SimpleDbBackend {
+
+  SimpleDbBackend JDBC = DriverManager::getConnection;
+
+  Connection connect(String url, Properties properties) throws SQLException;
+}
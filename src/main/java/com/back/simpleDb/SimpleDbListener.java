@@ -0,0 +1,10 @@
+package com.back.simpleDb;
+
+public interface SimpleDbListener {
+
+  default void onQuery(QueryEvent event) {
+  }
+
+  default void onConnectionAcquired(long waitNanos) {
+  }
+}
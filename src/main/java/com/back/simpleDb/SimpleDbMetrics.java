@@ -0,0 +1,36 @@
+package com.back.simpleDb;
+
+import java.util.concurrent.atomic.LongAdder;
+import lombok.Getter;
+
+@Getter
+public class SimpleDbMetrics implements SimpleDbListener {
+
+  private final LatencyHistogram prepareLatency = new LatencyHistogram();
+  private final LatencyHistogram executeLatency = new LatencyHistogram();
+  private final LatencyHistogram mappingLatency = new LatencyHistogram();
+  private final LatencyHistogram totalLatency = new LatencyHistogram();
+  private final LatencyHistogram connectionAcquireLatency = new LatencyHistogram();
+  private final LongAdder queryCount = new LongAdder();
+  private final LongAdder errorCount = new LongAdder();
+  private final LongAdder rowCount = new LongAdder();
+
+  @Override
+  public void onQuery(QueryEvent event) {
+    queryCount.increment();
+    prepareLatency.record(event.prepareNanos());
+    executeLatency.record(event.executeNanos());
+    mappingLatency.record(event.mappingNanos());
+    totalLatency.record(event.totalNanos());
+
+    if (event.failed())
+      errorCount.increment();
+    else if (event.rows() > 0)
+      rowCount.add(event.rows());
+  }
+
+  @Override
+  public void onConnectionAcquired(long waitNanos) {
+    connectionAcquireLatency.record(waitNanos);
+  }
+}
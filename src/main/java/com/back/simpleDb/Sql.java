@@ -1,36 +1,66 @@
 package com.back.simpleDb;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.sql.*;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import org.junit.platform.commons.logging.Logger;
 import org.junit.platform.commons.logging.LoggerFactory;
 
 public class Sql {
 
   private final Connection conn;
-  private final StringBuilder sqlBuilder = new StringBuilder();
-  private final List<Object> bindParams = new ArrayList<>();
-  private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+  private final SimpleDb simpleDb;
+  private StringBuilder sqlBuilder;
+  private String compiledSql = "";
+  private List<Object> bindParams;
+  private int fetchSize = Integer.MIN_VALUE;
+  private long cacheTtlMillis = -1;
   private final Logger logger = LoggerFactory.getLogger(Sql.class);
 
+  private static final int STREAM_CHUNK_SIZE = 8192;
+
   public Sql(Connection conn) {
     this.conn = conn;
+    this.simpleDb = null;
+    this.bindParams = new ArrayList<>();
+  }
+
+  Sql(SimpleDb simpleDb) {
+    this.conn = null;
+    this.simpleDb = simpleDb;
+    this.bindParams = new ArrayList<>();
+  }
+
+  Sql(Connection conn, SimpleDb simpleDb, String compiledSql, List<Object> bindParams) {
+    this.conn = conn;
+    this.simpleDb = simpleDb;
+    this.compiledSql = compiledSql;
+    this.bindParams = bindParams;
   }
 
   public Sql append(String sql, Object... bindParam) {
-    sqlBuilder.append(sql).append("\n");
-    bindParams.addAll(Arrays.asList(bindParam));
+    builder().append(sql).append('\n');
+    addBindParams(bindParam);
     return this;
   }
 
   public Sql appendIn(String sql, Object... bindParam) {
-    String markerString = String.join(", ", Collections.nCopies(bindParam.length, "?"));
-    sqlBuilder.append(sql.replace("?", markerString)).append("\n");
-    bindParams.addAll(Arrays.asList(bindParam));
+    builder().append(SqlMarkers.expand(sql, SqlMarkers.of(bindParam.length))).append('\n');
+    addBindParams(bindParam);
     return this;
   }
 
@@ -43,7 +73,8 @@ public class Sql {
   }
 
   public <T> T selectRow(Class<T> clazz) {
-    return objectMapper.convertValue(selectRow(), clazz);
+    T managed = simpleDb != null ? simpleDb.findManaged(clazz, sql(), bindParams) : null;
+    return managed != null ? managed : executeSql(clazz);
   }
 
   public List<Map<String, Object>> selectRows() {
@@ -51,9 +82,151 @@ public class Sql {
   }
 
   public <T> List<T> selectRows(Class<T> clazz) {
-    return selectRows().stream()
-        .map(row -> objectMapper.convertValue(row, clazz))
-        .collect(Collectors.toList());
+    return executeSql(List.class, clazz);
+  }
+
+  public ColumnarResult selectColumnar() {
+    return executeSql(ColumnarResult.class);
+  }
+
+  public Sql cached() {
+    if (simpleDb == null)
+      throw new IllegalStateException("Result caching requires a Sql created by SimpleDb.genSql()");
+
+    return cached(Duration.ofMillis(simpleDb.getQueryCache().getDefaultTtlMillis()));
+  }
+
+  public Sql cached(Duration ttl) {
+    this.cacheTtlMillis = ttl.toMillis();
+    return this;
+  }
+
+  public Sql fetchSize(int fetchSize) {
+    this.fetchSize = fetchSize;
+    return this;
+  }
+
+  public Stream<Map<String, Object>> stream() {
+    return (Stream<Map<String, Object>>) (Stream<?>) stream(Map.class);
+  }
+
+  public <T> Stream<T> stream(Class<T> clazz) {
+    String sql = sql();
+    QueryTimer timer = new QueryTimer(simpleDb, sql, bindParams);
+    PreparedStatement ps = null;
+
+    try {
+      ps = connection(sql).prepareStatement(sql,
+          ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+      ps.setFetchSize(fetchSize);
+      bindParameters(ps);
+      timer.prepared();
+
+      ResultSet rs = ps.executeQuery();
+      timer.executed();
+      timer.releasePermit();
+      ResultSetSpliterator<T> spliterator =
+          new ResultSetSpliterator<>(ps, rs, rowMapper(clazz, rs.getMetaData()), timer);
+
+      return StreamSupport.stream(spliterator, false).onClose(spliterator::close);
+    } catch (SQLException | RuntimeException e) {
+      closeQuietly(ps);
+      timer.failed(e);
+      timer.finish();
+      logger.error(e, () -> "SQL stream failed: %s, SQL: %s, clazz: %s"
+          .formatted(e.getMessage(), sql, clazz));
+      throw new RuntimeException("SQL execution failed", e);
+    }
+  }
+
+  public void forEachRow(Consumer<Map<String, Object>> action) {
+    try (Stream<Map<String, Object>> rows = stream()) {
+      rows.forEach(action);
+    }
+  }
+
+  public <T> void forEachRow(Class<T> clazz, Consumer<T> action) {
+    try (Stream<T> rows = stream(clazz)) {
+      rows.forEach(action);
+    }
+  }
+
+  public List<Map<String, Object>> selectPage(String keyColumn, Object afterKey, int pageSize) {
+    return (List<Map<String, Object>>) (List<?>)
+        selectPage(Map.class, keyColumn, afterKey, pageSize);
+  }
+
+  public <T> List<T> selectPage(Class<T> clazz, String keyColumn, Object afterKey, int pageSize) {
+    String key = "page." + quoteIdentifier(keyColumn);
+    Sql page = afterKey == null
+        ? derived("SELECT * FROM (\n", ") page\nORDER BY %s\nLIMIT ?".formatted(key), pageSize)
+        : derived("SELECT * FROM (\n", ") page\nWHERE %s > ?\nORDER BY %s\nLIMIT ?"
+            .formatted(key, key), afterKey, pageSize);
+
+    return page.selectList(clazz);
+  }
+
+  public <T> Stream<T> scanParallel(Class<T> clazz, String keyColumn, int chunkCnt) {
+    if (simpleDb == null)
+      throw new IllegalStateException("Parallel scan requires a Sql created by SimpleDb.genSql()");
+    if (chunkCnt < 1)
+      throw new IllegalArgumentException("chunkCnt must be positive: " + chunkCnt);
+
+    String key = "scan." + quoteIdentifier(keyColumn);
+    Map<String, Object> range = derived("SELECT MIN(%s) AS lo, MAX(%s) AS hi FROM (\n"
+        .formatted(key, key), ") scan").selectRow();
+
+    if (!(range.get("lo") instanceof Number lo) || !(range.get("hi") instanceof Number hi))
+      return Stream.empty();
+
+    BigInteger first = BigInteger.valueOf(lo.longValue());
+    BigInteger last = BigInteger.valueOf(hi.longValue());
+    BigInteger step = last.subtract(first).divide(BigInteger.valueOf(chunkCnt))
+        .add(BigInteger.ONE);
+    List<Sql> chunks = new ArrayList<>(chunkCnt);
+
+    for (BigInteger from = first; from.compareTo(last) <= 0; from = from.add(step)) {
+      BigInteger to = from.add(step).subtract(BigInteger.ONE).min(last);
+      chunks.add(derived("SELECT * FROM (\n", ") scan\nWHERE %s >= ? AND %s <= ?\nORDER BY %s"
+          .formatted(key, key, key), from.longValue(), to.longValue()));
+    }
+
+    int prefetch = Math.min(chunks.size(), simpleDb.getConnectionPool().getMaxSize() - 1);
+    ParallelScan<T> scan = new ParallelScan<>(simpleDb, clazz, chunks, prefetch);
+
+    return StreamSupport.stream(scan, false).onClose(scan::close);
+  }
+
+  public CompletableFuture<Long> insertAsync() {
+    return async(Sql::insert);
+  }
+
+  public CompletableFuture<Map<String, Object>> selectRowAsync() {
+    return async(Sql::selectRow);
+  }
+
+  public <T> CompletableFuture<T> selectRowAsync(Class<T> clazz) {
+    return async(sql -> sql.selectRow(clazz));
+  }
+
+  public CompletableFuture<List<Map<String, Object>>> selectRowsAsync() {
+    return async(Sql::selectRows);
+  }
+
+  public <T> CompletableFuture<List<T>> selectRowsAsync(Class<T> clazz) {
+    return async(sql -> sql.selectRows(clazz));
+  }
+
+  public CompletableFuture<Long> selectLongAsync() {
+    return async(Sql::selectLong);
+  }
+
+  public CompletableFuture<Integer> updateAsync() {
+    return async(Sql::update);
+  }
+
+  public CompletableFuture<Integer> deleteAsync() {
+    return async(Sql::delete);
   }
 
   public LocalDateTime selectDatetime() {
@@ -77,6 +250,44 @@ public class Sql {
     return executeSql(Boolean.class);
   }
 
+  public long selectCharacterStream(Writer sink) {
+    return selectStream(rs -> {
+      try (Reader reader = rs.getCharacterStream(1)) {
+        return reader == null ? -1 : reader.transferTo(sink);
+      }
+    });
+  }
+
+  public long selectBinaryStream(OutputStream sink) {
+    return selectStream(rs -> {
+      try (InputStream in = rs.getBinaryStream(1)) {
+        return in == null ? -1 : in.transferTo(sink);
+      }
+    });
+  }
+
+  public long selectBinaryStream(WritableByteChannel sink) {
+    return selectStream(rs -> {
+      try (InputStream in = rs.getBinaryStream(1)) {
+        if (in == null)
+          return -1;
+
+        byte[] chunk = new byte[STREAM_CHUNK_SIZE];
+        ByteBuffer buffer = ByteBuffer.wrap(chunk);
+        long transferred = 0;
+
+        for (int n = in.read(chunk); n >= 0; n = in.read(chunk)) {
+          buffer.clear().limit(n);
+          while (buffer.hasRemaining()) {
+            sink.write(buffer);
+          }
+          transferred += n;
+        }
+        return transferred;
+      }
+    });
+  }
+
   public int update() {
     Integer result = executeSql();
     return result != null ? result : 0;
@@ -87,6 +298,103 @@ public class Sql {
     return result != null ? result : 0;
   }
 
+  private long selectStream(StreamTransfer transfer) {
+    String sql = sql();
+    QueryTimer timer = new QueryTimer(simpleDb, sql, bindParams);
+
+    try (PreparedStatement ps = connection(sql).prepareStatement(sql)) {
+      ps.setFetchSize(fetchSize);
+      bindParameters(ps);
+      timer.prepared();
+
+      try (ResultSet rs = ps.executeQuery()) {
+        timer.executed();
+
+        if (!rs.next())
+          throw new NoSuchElementException("No result for select query");
+
+        long transferred = transfer.apply(rs);
+        timer.mapped(1);
+        return transferred;
+      }
+    } catch (SQLException | IOException e) {
+      timer.failed(e);
+      logger.error(e, () -> "SQL stream failed: %s, SQL: %s".formatted(e.getMessage(), sql));
+      throw new RuntimeException("SQL execution failed", e);
+    } catch (RuntimeException e) {
+      timer.failed(e);
+      throw e;
+    } finally {
+      timer.finish();
+    }
+  }
+
+  private <R> CompletableFuture<R> async(Function<Sql, R> action) {
+    if (simpleDb == null)
+      throw new IllegalStateException("Async execution requires a Sql created by SimpleDb.genSql()");
+
+    Sql copy = new Sql(null, simpleDb, sql(), new ArrayList<>(bindParams));
+    copy.fetchSize = fetchSize;
+    copy.cacheTtlMillis = cacheTtlMillis;
+
+    return simpleDb.supplyAsync(() -> action.apply(copy));
+  }
+
+  private Sql derived(String prefix, String suffix, Object... extraParams) {
+    List<Object> params = new ArrayList<>(bindParams.size() + extraParams.length);
+    params.addAll(bindParams);
+    Collections.addAll(params, extraParams);
+
+    Sql derived = new Sql(conn, simpleDb, prefix + sql() + suffix, params);
+    derived.fetchSize = fetchSize;
+    return derived;
+  }
+
+  private <T> List<T> selectList(Class<T> clazz) {
+    try (Stream<T> rows = stream(clazz)) {
+      return rows.toList();
+    }
+  }
+
+  private static String quoteIdentifier(String identifier) {
+    if (!identifier.matches("[\\w$]+"))
+      throw new IllegalArgumentException("Invalid column name: " + identifier);
+
+    return "`" + identifier + "`";
+  }
+
+  private StringBuilder builder() {
+    if (sqlBuilder == null) {
+      sqlBuilder = new StringBuilder(compiledSql.length() + 128).append(compiledSql);
+
+      if (!compiledSql.isEmpty())
+        sqlBuilder.append('\n');
+    }
+    return sqlBuilder;
+  }
+
+  private void addBindParams(Object[] bindParam) {
+    if (bindParam.length == 0)
+      return;
+    if (!(bindParams instanceof ArrayList))
+      bindParams = new ArrayList<>(bindParams);
+
+    Collections.addAll(bindParams, bindParam);
+  }
+
+  String sql() {
+    return sqlBuilder != null ? sqlBuilder.toString() : compiledSql;
+  }
+
+  private void afterWrite(String sql) {
+    if (simpleDb != null)
+      simpleDb.onWrite(sql);
+  }
+
+  private Connection connection(String sql) {
+    return conn != null ? conn : simpleDb.getConnection(sql);
+  }
+
   private <T> T executeSql() {
     return executeSql(null, null);
   }
@@ -95,34 +403,154 @@ public class Sql {
     return executeSql(clazz, null);
   }
 
-  private <T, E> T executeSql(Class<T> clazz, Class<E> listType) {
-    String sql = sqlBuilder.toString();
+  List<Object> bindParams() {
+    return bindParams;
+  }
+
+  <T, E> T executeSql(Class<T> clazz, Class<E> listType) {
+    String sql = sql();
+
+    if (!sql.startsWith("SELECT"))
+      return executeSql(sql, clazz, listType);
+
+    sql = projected(sql, listType != null ? listType : clazz);
+    T result = select(sql, clazz, listType);
+
+    if (simpleDb != null)
+      Projections.attachLazy(simpleDb, sql, result);
+
+    if (simpleDb != null && simpleDb.isInTransaction())
+      return (T) simpleDb.track(sql, result);
+
+    return result;
+  }
+
+  private <T, E> T select(String sql, Class<T> clazz, Class<E> listType) {
+    if (simpleDb != null && simpleDb.isInTransaction())
+      return executeSql(sql, clazz, listType);
+
+    if (cacheTtlMillis < 0 || simpleDb == null
+        || !QueryCache.isCacheable(listType != null ? listType : clazz))
+      return executeSql(sql, clazz, listType);
+
+    QueryCache queryCache = simpleDb.getQueryCache();
+    QueryCache.Key key = new QueryCache.Key(sql, new ArrayList<>(bindParams), clazz, listType);
+    Object cached = queryCache.get(key);
+
+    if (cached != null)
+      return (T) QueryCache.copyOf(cached);
+
+    Set<String> tables = SqlStatements.tables(sql);
+    long generation = queryCache.generation(tables);
+    T result = executeSql(sql, clazz, listType);
+
+    if (result != null)
+      queryCache.put(key, QueryCache.copyOf(result), tables, cacheTtlMillis, generation);
+
+    return result;
+  }
+
+  private String projected(String sql, Class<?> rowType) {
+    try {
+      return Projections.project(sql, rowType, this::columnLabels);
+    } catch (SQLException e) {
+      logger.error(e, () -> "Projection probe failed: %s, SQL: %s, rowType: %s"
+          .formatted(e.getMessage(), sql, rowType));
+      throw new RuntimeException("SQL execution failed", e);
+    }
+  }
+
+  private String[] columnLabels(String sql) throws SQLException {
+    ConcurrencyLimiter.Permit permit = admit(sql);
+    Throwable error = null;
 
-    try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+    try (PreparedStatement ps = connection(sql).prepareStatement(sql)) {
       bindParameters(ps);
 
+      try (ResultSet rs = ps.executeQuery()) {
+        ResultSetMetaData meta = rs.getMetaData();
+        String[] labels = new String[meta.getColumnCount()];
+
+        for (int i = 0; i < labels.length; i++) {
+          labels[i] = meta.getColumnLabel(i + 1);
+        }
+        return labels;
+      }
+    } catch (SQLException | RuntimeException e) {
+      error = e;
+      throw e;
+    } finally {
+      release(permit, error);
+    }
+  }
+
+  private ConcurrencyLimiter.Permit admit(String sql) {
+    return simpleDb != null ? simpleDb.admit(sql) : null;
+  }
+
+  private void release(ConcurrencyLimiter.Permit permit, Throwable error) {
+    if (permit != null)
+      permit.release(error);
+  }
+
+  private <T, E> T executeSql(String sql, Class<T> clazz, Class<E> listType) {
+    QueryTimer timer = new QueryTimer(simpleDb, sql, bindParams);
+
+    try (PreparedStatement ps = connection(sql)
+        .prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+      bindParameters(ps);
+      timer.prepared();
+
       if (sql.startsWith("INSERT")) {
         ps.executeUpdate();
+        timer.executed();
+        afterWrite(sql);
         try (ResultSet rs = ps.getGeneratedKeys()) {
           if (rs.next()) {
+            timer.mapped(1);
             return (T) (Long) rs.getLong(1);
           }
         }
       }
 
+      if (sql.startsWith("SELECT") && clazz == ColumnarResult.class) {
+        ps.setFetchSize(fetchSize);
+        try (ResultSet rs = ps.executeQuery()) {
+          timer.executed();
+          ColumnarResult result = ColumnarResult.read(rs);
+          timer.mapped(result.getRowCount());
+          return (T) result;
+        }
+      }
+
       if (sql.startsWith("SELECT")) {
-        return parseResultSet(ps.executeQuery(), clazz, listType);
+        try (ResultSet rs = ps.executeQuery()) {
+          timer.executed();
+          T result = parseResultSet(rs, clazz, listType);
+          timer.mapped(result instanceof List<?> rows ? rows.size() : 1);
+          return result;
+        }
       }
 
-      return (T) (Integer) ps.executeUpdate();
+      Integer affectedRowsCnt = ps.executeUpdate();
+      timer.executed();
+      timer.mapped(affectedRowsCnt);
+      afterWrite(sql);
+      return (T) affectedRowsCnt;
     } catch (SQLException e) {
+      timer.failed(e);
       logger.error(e, () -> "SQL execution failed: %s, SQL: %s, clazz: %s, listType: %s"
           .formatted(e.getMessage(), sql, clazz, listType));
       throw new RuntimeException("SQL execution failed", e);
+    } catch (RuntimeException e) {
+      timer.failed(e);
+      throw e;
+    } finally {
+      timer.finish();
     }
   }
 
-  private <T, E> T parseResultSet(
+  <T, E> T parseResultSet(
       ResultSet rs,
       Class<T> clazz,
       Class<E> listType
@@ -134,23 +562,22 @@ public class Sql {
       case "Boolean" -> (T) (Boolean) rs.getBoolean(1);
       case "Long" -> (T) (Long) rs.getLong(1);
       case "String" -> (T) rs.getString(1);
-      case "Map" -> (T) mapResultSet(rs);
       case "LocalDateTime" -> (T) rs.getTimestamp(1).toLocalDateTime();
-      case "List" -> switch (listType.getSimpleName()) {
-        case "Long" -> (T) getListFromResultSet(rs, resultSet -> resultSet.getLong(1));
-        case "Map" -> (T) getListFromResultSet(rs, this::mapResultSet);
-        default -> {
-          IllegalStateException e = new IllegalStateException("Unexpected class value");
-          logger.error(e, () ->
-              "Unexpected listType value: %s".formatted(listType.getSimpleName()));
-          throw e;
-        }
-      };
-      default -> {
-        IllegalStateException e = new IllegalStateException("Unexpected class value");
-        logger.error(e, () -> "Unexpected clazz value: %s".formatted(clazz.getSimpleName()));
-        throw e;
-      }
+      case "List" -> (T) getListFromResultSet(rs, rowMapper(listType, rs.getMetaData()));
+      default -> rowMapper(clazz, rs.getMetaData()).apply(rs);
+    };
+  }
+
+  private <T> SQLExceptionFunction<ResultSet, T> rowMapper(
+      Class<T> clazz,
+      ResultSetMetaData meta
+  ) throws SQLException {
+    return switch (clazz.getSimpleName()) {
+      case "Long" -> rs -> (T) (Long) rs.getLong(1);
+      case "String" -> rs -> (T) rs.getString(1);
+      case "Map" -> (SQLExceptionFunction<ResultSet, T>) (SQLExceptionFunction<ResultSet, ?>)
+          RowMappers.forMap(meta);
+      default -> RowMappers.forResultSet(clazz, meta);
     };
   }
 
@@ -165,21 +592,26 @@ public class Sql {
     return list;
   }
 
-  private Map<String, Object> mapResultSet(ResultSet rs) throws SQLException {
-    Map<String, Object> row = new HashMap<>();
-    ResultSetMetaData meta = rs.getMetaData();
-    int colCnt = meta.getColumnCount();
+  private void closeQuietly(AutoCloseable closeable) {
+    if (closeable == null)
+      return;
 
-    for (int i = 1; i <= colCnt; i++) {
-      row.put(meta.getColumnName(i), rs.getObject(i));
+    try {
+      closeable.close();
+    } catch (Exception e) {
+      logger.error(e, () -> "Failed to close: %s".formatted(e.getMessage()));
     }
-
-    return row;
   }
 
   private void bindParameters(PreparedStatement ps) throws SQLException {
     for (int i = 0; i < bindParams.size(); i++) {
-      ps.setObject(i + 1, bindParams.get(i));
+      JdbcTypes.bind(ps, i + 1, bindParams.get(i));
     }
   }
+
+  @FunctionalInterface
+  private interface StreamTransfer {
+
+    long apply(ResultSet rs) throws SQLException, IOException;
+  }
 }
@@ -0,0 +1,91 @@
+package com.back.simpleDb;
+
+import java.util.ArrayList;
+import java.util.List;
+
+final class SqlMarkers {
+
+  private static final int MAX_CACHED = 1024;
+  private static final String[] markers = new String[MAX_CACHED + 1];
+
+  private SqlMarkers() {
+  }
+
+  static String of(int count) {
+    if (count > MAX_CACHED)
+      return build(count);
+
+    String marker = markers[count];
+
+    if (marker == null) {
+      marker = build(count);
+      markers[count] = marker;
+    }
+
+    return marker;
+  }
+
+  static int bucket(int count) {
+    if (count <= 1)
+      return count;
+    if (count > MAX_CACHED)
+      return (count + MAX_CACHED - 1) / MAX_CACHED * MAX_CACHED;
+
+    return Integer.highestOneBit(count - 1) << 1;
+  }
+
+  static String expand(String sql, String marker) {
+    int index = sql.indexOf('?');
+
+    if (index < 0)
+      return sql;
+
+    StringBuilder sb = new StringBuilder(sql.length() + marker.length());
+    int from = 0;
+
+    while (index >= 0) {
+      sb.append(sql, from, index).append(marker);
+      from = index + 1;
+      index = sql.indexOf('?', from);
+    }
+
+    return sb.append(sql, from, sql.length()).toString();
+  }
+
+  static String[] split(String sql) {
+    List<String> fragments = new ArrayList<>();
+    int from = 0;
+    char quote = 0;
+
+    for (int i = 0; i < sql.length(); i++) {
+      char c = sql.charAt(i);
+
+      if (quote != 0) {
+        if (c == '\\')
+          i++;
+        else if (c == quote)
+          quote = 0;
+      } else if (c == '\'' || c == '"' || c == '`') {
+        quote = c;
+      } else if (c == '?') {
+        fragments.add(sql.substring(from, i));
+        from = i + 1;
+      }
+    }
+
+    fragments.add(sql.substring(from));
+    return fragments.toArray(String[]::new);
+  }
+
+  private static String build(int count) {
+    if (count == 0)
+      return "NULL";
+
+    StringBuilder sb = new StringBuilder(count * 3);
+    sb.append('?');
+    for (int i = 1; i < count; i++) {
+      sb.append(", ?");
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,141 @@
+package com.back.simpleDb;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+final class SqlStatements {
+
+  static final String ALL_TABLES = "*";
+
+  private static final int MAX_CACHED = 4096;
+  private static final Pattern TABLE_PATTERN = Pattern.compile(
+      "\\b(?:FROM|JOIN|UPDATE|INTO|TRUNCATE|TABLE)\\s+(?:TABLE\\s+)?(?:IF\\s+(?:NOT\\s+)?EXISTS\\s+)?"
+          + "(`?[\\w$]+`?(?:\\s*\\.\\s*`?[\\w$]+`?)?)",
+      Pattern.CASE_INSENSITIVE);
+  private static final Pattern PRIMARY_ONLY_PATTERN = Pattern.compile(
+      "\\bFOR\\s+(?:UPDATE|SHARE)\\b|\\bLOCK\\s+IN\\s+SHARE\\s+MODE\\b"
+          + "|\\b(?:LAST_INSERT_ID|FOUND_ROWS|ROW_COUNT|GET_LOCK|RELEASE_LOCK)\\s*\\(",
+      Pattern.CASE_INSENSITIVE);
+  private static final Pattern ID_LOOKUP_PATTERN = Pattern.compile(
+      "\\s*SELECT\\s+\\*\\s+FROM\\s+`?([\\w$]+)`?\\s+WHERE\\s+`?([\\w$]+)`?\\s*=\\s*\\?\\s*",
+      Pattern.CASE_INSENSITIVE);
+  private static final Set<String> MAIN_KEYWORDS =
+      Set.of("SELECT", "INSERT", "REPLACE", "UPDATE", "DELETE", "TABLE", "VALUES");
+  private static final Map<String, Set<String>> tablesCache = new ConcurrentHashMap<>();
+  private static final Map<String, Boolean> replicaSafeCache = new ConcurrentHashMap<>();
+
+  private SqlStatements() {
+  }
+
+  static boolean isSelect(String sql) {
+    if (startsWithKeyword(sql, "SELECT"))
+      return true;
+
+    return startsWithKeyword(sql, "WITH") && "SELECT".equals(mainKeywordAfterWith(sql));
+  }
+
+  static boolean isReplicaSafe(String sql) {
+    Boolean safe = replicaSafeCache.get(sql);
+
+    if (safe != null)
+      return safe;
+
+    safe = isSelect(sql) && !PRIMARY_ONLY_PATTERN.matcher(sql).find();
+
+    if (replicaSafeCache.size() >= MAX_CACHED)
+      replicaSafeCache.clear();
+    replicaSafeCache.put(sql, safe);
+
+    return safe;
+  }
+
+  static Set<String> tables(String sql) {
+    Set<String> tables = tablesCache.get(sql);
+
+    if (tables != null)
+      return tables;
+
+    tables = parseTables(sql);
+
+    if (tablesCache.size() >= MAX_CACHED)
+      tablesCache.clear();
+    tablesCache.put(sql, tables);
+
+    return tables;
+  }
+
+  static IdLookup idLookup(String sql) {
+    Matcher matcher = ID_LOOKUP_PATTERN.matcher(sql);
+
+    if (!matcher.matches())
+      return null;
+
+    return new IdLookup(matcher.group(1).toLowerCase(Locale.ROOT), matcher.group(2));
+  }
+
+  private static Set<String> parseTables(String sql) {
+    Set<String> tables = new LinkedHashSet<>();
+    Matcher matcher = TABLE_PATTERN.matcher(sql);
+
+    while (matcher.find()) {
+      String name = matcher.group(1).replace("`", "").replaceAll("\\s", "");
+      int dot = name.lastIndexOf('.');
+
+      tables.add(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    return Collections.unmodifiableSet(tables);
+  }
+
+  private static String mainKeywordAfterWith(String sql) {
+    int depth = 0;
+    int i = sql.toUpperCase(Locale.ROOT).indexOf("WITH") + 4;
+
+    while (i < sql.length()) {
+      char c = sql.charAt(i);
+
+      if (c == '\'' || c == '"' || c == '`') {
+        int end = sql.indexOf(c, i + 1);
+        i = end < 0 ? sql.length() : end + 1;
+      } else if (c == '(') {
+        depth++;
+        i++;
+      } else if (c == ')') {
+        depth--;
+        i++;
+      } else if (Character.isLetter(c)) {
+        int start = i;
+        while (i < sql.length() && (Character.isLetterOrDigit(sql.charAt(i))
+            || sql.charAt(i) == '_' || sql.charAt(i) == '$'))
+          i++;
+
+        String word = sql.substring(start, i).toUpperCase(Locale.ROOT);
+
+        if (depth == 0 && MAIN_KEYWORDS.contains(word))
+          return word;
+      } else {
+        i++;
+      }
+    }
+    return null;
+  }
+
+  private static boolean startsWithKeyword(String sql, String keyword) {
+    int i = 0;
+
+    while (i < sql.length() && (Character.isWhitespace(sql.charAt(i)) || sql.charAt(i) == '('))
+      i++;
+
+    return sql.regionMatches(true, i, keyword, 0, keyword.length());
+  }
+
+  record IdLookup(String table, String idColumn) {
+
+  }
+}
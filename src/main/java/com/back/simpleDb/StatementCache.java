@@ -0,0 +1,166 @@
+package com.back.simpleDb;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+class StatementCache {
+
+  private final Connection physical;
+  private final int maxSize;
+  private final StatementCacheStats stats;
+  private final LinkedHashMap<Key, CachedStatement> statements;
+
+  StatementCache(Connection physical, int maxSize, StatementCacheStats stats) {
+    this.physical = physical;
+    this.maxSize = maxSize;
+    this.stats = stats;
+    this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, CachedStatement> eldest) {
+        if (size() <= StatementCache.this.maxSize)
+          return false;
+
+        eldest.getValue().evict();
+        stats.recordEviction();
+        return true;
+      }
+    };
+  }
+
+  PreparedStatement prepare(Connection owner, String sql, int autoGeneratedKeys)
+      throws SQLException {
+    Key key = new Key(sql, autoGeneratedKeys);
+    CachedStatement cached = statements.get(key);
+
+    if (cached != null && !cached.inUse && !cached.statement.isClosed()) {
+      stats.recordHit();
+      return cached.borrow(owner);
+    }
+
+    stats.recordMiss();
+    PreparedStatement ps = physical.prepareStatement(sql, autoGeneratedKeys);
+
+    if (cached != null && cached.inUse)
+      return ps;
+
+    CachedStatement created = new CachedStatement(ps);
+    statements.put(key, created);
+    return created.borrow(owner);
+  }
+
+  void closeAll() {
+    List<CachedStatement> all = new ArrayList<>(statements.values());
+    statements.clear();
+    all.forEach(CachedStatement::evict);
+  }
+
+  private record Key(String sql, int autoGeneratedKeys) {
+
+  }
+
+  private static class CachedStatement {
+
+    private final PreparedStatement statement;
+    private boolean inUse = false;
+    private boolean evicted = false;
+
+    CachedStatement(PreparedStatement statement) {
+      this.statement = statement;
+    }
+
+    PreparedStatement borrow(Connection owner) {
+      inUse = true;
+      return (PreparedStatement) Proxy.newProxyInstance(
+          PreparedStatement.class.getClassLoader(),
+          new Class<?>[]{PreparedStatement.class},
+          new BorrowHandler(owner)
+      );
+    }
+
+    void evict() {
+      evicted = true;
+
+      if (!inUse)
+        closeQuietly();
+    }
+
+    void giveBack() {
+      inUse = false;
+
+      if (evicted) {
+        closeQuietly();
+        return;
+      }
+
+      try {
+        statement.clearParameters();
+        statement.clearBatch();
+        statement.clearWarnings();
+        statement.setFetchSize(0);
+      } catch (SQLException e) {
+        evicted = true;
+        closeQuietly();
+      }
+    }
+
+    private void closeQuietly() {
+      try {
+        statement.close();
+      } catch (SQLException ignored) {
+      }
+    }
+
+    private class BorrowHandler implements InvocationHandler {
+
+      private final Connection owner;
+      private boolean returned = false;
+
+      BorrowHandler(Connection owner) {
+        this.owner = owner;
+      }
+
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+          case "close" -> {
+            if (!returned) {
+              returned = true;
+              giveBack();
+            }
+            return null;
+          }
+          case "isClosed" -> {
+            return returned || statement.isClosed();
+          }
+          case "getConnection" -> {
+            return owner;
+          }
+          case "equals" -> {
+            return proxy == args[0];
+          }
+          case "hashCode" -> {
+            return System.identityHashCode(proxy);
+          }
+        }
+
+        if (returned)
+          throw new SQLException("Statement has already been closed");
+
+        try {
+          return method.invoke(statement, args);
+        } catch (InvocationTargetException e) {
+          throw e.getCause();
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,34 @@
+package com.back.simpleDb;
+
+import lombok.Getter;
+
+@Getter
+public class TransactionOptions {
+
+  private Integer isolationLevel = null;
+  private boolean readOnly = false;
+  private int maxRetries = 3;
+  private long initialBackoffMillis = 20;
+  private long maxBackoffMillis = 1_000;
+
+  public TransactionOptions isolation(int isolationLevel) {
+    this.isolationLevel = isolationLevel;
+    return this;
+  }
+
+  public TransactionOptions readOnly(boolean readOnly) {
+    this.readOnly = readOnly;
+    return this;
+  }
+
+  public TransactionOptions maxRetries(int maxRetries) {
+    this.maxRetries = maxRetries;
+    return this;
+  }
+
+  public TransactionOptions backoff(long initialBackoffMillis, long maxBackoffMillis) {
+    this.initialBackoffMillis = initialBackoffMillis;
+    this.maxBackoffMillis = maxBackoffMillis;
+    return this;
+  }
+}
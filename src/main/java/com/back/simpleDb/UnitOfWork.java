@@ -0,0 +1,148 @@
+package com.back.simpleDb;
+
+import com.back.simpleDb.EntityInfo.Property;
+import java.time.temporal.Temporal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+class UnitOfWork {
+
+  private final Map<Key, Managed> entities = new LinkedHashMap<>();
+
+  <T> T find(Class<T> clazz, String table, String idColumn, Object id) {
+    Managed managed = entities.get(new Key(clazz, normalizeId(id)));
+
+    if (managed == null || !table.equals(managed.table)
+        || !EntityInfo.of(clazz).id().column().equalsIgnoreCase(idColumn))
+      return null;
+
+    return clazz.cast(managed.entity);
+  }
+
+  Object track(String sql, Object result) {
+    if (result instanceof List<?> list) {
+      if (list.isEmpty() || !isEntity(list.get(0)))
+        return result;
+
+      String table = tableOf(sql);
+      List<Object> tracked = new ArrayList<>(list.size());
+      for (Object entity : list) {
+        tracked.add(attach(table, entity));
+      }
+      return tracked;
+    }
+
+    return isEntity(result) ? attach(tableOf(sql), result) : result;
+  }
+
+  void flush(SimpleDb simpleDb) {
+    Map<String, List<Object[]>> updates = new LinkedHashMap<>();
+    Map<Managed, Object[]> snapshots = new LinkedHashMap<>();
+
+    for (Managed managed : entities.values()) {
+      if (managed.table == null)
+        continue;
+
+      EntityInfo info = EntityInfo.of(managed.entity.getClass());
+      Object[] current = info.snapshot(managed.entity);
+      List<Property> changed = new ArrayList<>();
+      List<Object> params = new ArrayList<>();
+
+      for (int i = 0; i < current.length; i++) {
+        Property column = info.trackedColumn(i);
+
+        if (column != info.id() && !Objects.deepEquals(current[i], managed.snapshot[i])) {
+          changed.add(column);
+          params.add(column.value(managed.entity));
+        }
+      }
+
+      if (changed.isEmpty())
+        continue;
+
+      params.add(info.id().read(managed.entity));
+      updates.computeIfAbsent(updateSql(managed.table, info, changed), sql -> new ArrayList<>())
+          .add(params.toArray());
+      snapshots.put(managed, current);
+    }
+
+    for (Map.Entry<String, List<Object[]>> update : updates.entrySet()) {
+      try (Batch batch = simpleDb.genBatch(update.getKey())) {
+        for (Object[] params : update.getValue()) {
+          batch.add(params);
+        }
+        batch.update();
+      }
+    }
+
+    snapshots.forEach((managed, snapshot) -> managed.snapshot = snapshot);
+  }
+
+  private Object attach(String table, Object entity) {
+    EntityInfo info = EntityInfo.of(entity.getClass());
+    Long id = info.idOf(entity);
+
+    if (id == null)
+      return entity;
+
+    Key key = new Key(entity.getClass(), id);
+    Managed managed = entities.get(key);
+
+    if (managed != null)
+      return managed.entity;
+
+    entities.put(key, new Managed(entity, table, info.snapshot(entity)));
+    return entity;
+  }
+
+  private boolean isEntity(Object value) {
+    if (value == null || value instanceof Map || value instanceof CharSequence
+        || value instanceof Number || value instanceof Boolean || value instanceof Temporal
+        || value instanceof ColumnarResult)
+      return false;
+
+    return EntityInfo.of(value.getClass()).id() != null;
+  }
+
+  private String tableOf(String sql) {
+    Set<String> tables = SqlStatements.tables(sql);
+    return tables.size() == 1 ? tables.iterator().next() : null;
+  }
+
+  private String updateSql(String table, EntityInfo info, List<Property> changed) {
+    StringBuilder sb = new StringBuilder("UPDATE `").append(table).append("` SET ");
+
+    for (int i = 0; i < changed.size(); i++) {
+      if (i > 0)
+        sb.append(", ");
+      sb.append('`').append(changed.get(i).column()).append("` = ?");
+    }
+
+    return sb.append(" WHERE `").append(info.id().column()).append("` = ?").toString();
+  }
+
+  private static Object normalizeId(Object id) {
+    return id instanceof Number number ? number.longValue() : id;
+  }
+
+  private record Key(Class<?> type, Object id) {
+
+  }
+
+  private static class Managed {
+
+    private final Object entity;
+    private final String table;
+    private Object[] snapshot;
+
+    Managed(Object entity, String table, Object[] snapshot) {
+      this.entity = entity;
+      this.table = table;
+      this.snapshot = snapshot;
+    }
+  }
+}
@@ -0,0 +1,47 @@
+package com.back.simpleDb;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import lombok.Getter;
+
+public class WarmUpOptions {
+
+  private final List<HotStatement> statements = new ArrayList<>();
+  @Getter
+  private final List<Class<?>> entities = new ArrayList<>();
+
+  public WarmUpOptions statement(String sql) {
+    statements.add(new HotStatement(sql, Statement.RETURN_GENERATED_KEYS, true));
+    return this;
+  }
+
+  public WarmUpOptions statement(Sql sql) {
+    statements.add(new HotStatement(sql.sql(), Statement.RETURN_GENERATED_KEYS, false));
+    return this;
+  }
+
+  public WarmUpOptions run(String sql) {
+    statements.add(new HotStatement(sql, Statement.NO_GENERATED_KEYS, false));
+    return this;
+  }
+
+  public WarmUpOptions batch(String sql) {
+    statements.add(new HotStatement(sql, Statement.RETURN_GENERATED_KEYS, false));
+    return this;
+  }
+
+  public WarmUpOptions entity(Class<?>... classes) {
+    Collections.addAll(entities, classes);
+    return this;
+  }
+
+  List<HotStatement> statements() {
+    return statements;
+  }
+
+  record HotStatement(String sql, int autoGeneratedKeys, boolean appended) {
+
+  }
+}
@@ -0,0 +1,12 @@
+package com.back.simpleDb;
+
+public record WarmUpReport(
+    int connectionCnt,
+    int statementCnt,
+    int mapperCnt,
+    long mapperNanos,
+    long connectNanos,
+    long totalNanos
+) {
+
+}
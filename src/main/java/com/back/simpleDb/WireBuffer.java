@@ -0,0 +1,140 @@
+package com.back.simpleDb;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+final class WireBuffer {
+
+  static final int NULL_LENGTH = -1;
+
+  private final byte[] payload;
+  private int pos;
+
+  WireBuffer(byte[] payload) {
+    this.payload = payload;
+  }
+
+  int remaining() {
+    return payload.length - pos;
+  }
+
+  void skip(int count) {
+    pos += count;
+  }
+
+  int peek() {
+    return payload[pos] & 0xff;
+  }
+
+  int u8() {
+    return payload[pos++] & 0xff;
+  }
+
+  int u16() {
+    return u8() | u8() << 8;
+  }
+
+  int u24() {
+    return u16() | u8() << 16;
+  }
+
+  long u32() {
+    return (u16() | (long) u16() << 16) & 0xffffffffL;
+  }
+
+  long u64() {
+    return u32() | u32() << 32;
+  }
+
+  long lenenc() {
+    int first = u8();
+
+    return switch (first) {
+      case 0xfb -> NULL_LENGTH;
+      case 0xfc -> u16();
+      case 0xfd -> u24();
+      case 0xfe -> u64();
+      default -> first;
+    };
+  }
+
+  byte[] lenencBytes() {
+    long length = lenenc();
+
+    return length == NULL_LENGTH ? null : bytes((int) length);
+  }
+
+  String lenencString() {
+    byte[] bytes = lenencBytes();
+
+    return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  String nulString() {
+    int end = pos;
+
+    while (end < payload.length && payload[end] != 0)
+      end++;
+
+    String value = new String(payload, pos, end - pos, StandardCharsets.UTF_8);
+    pos = Math.min(end + 1, payload.length);
+    return value;
+  }
+
+  byte[] bytes(int count) {
+    byte[] bytes = Arrays.copyOfRange(payload, pos, pos + count);
+    pos += count;
+    return bytes;
+  }
+
+  byte[] rest() {
+    return bytes(remaining());
+  }
+
+  String restString() {
+    return new String(payload, pos, remaining(), StandardCharsets.UTF_8);
+  }
+
+  static final class Writer extends ByteArrayOutputStream {
+
+    Writer u8(int value) {
+      write(value);
+      return this;
+    }
+
+    Writer u16(int value) {
+      return u8(value).u8(value >>> 8);
+    }
+
+    Writer u32(long value) {
+      return u16((int) value).u16((int) (value >>> 16));
+    }
+
+    Writer zeros(int count) {
+      for (int i = 0; i < count; i++) {
+        write(0);
+      }
+      return this;
+    }
+
+    Writer bytes(byte[] bytes) {
+      write(bytes, 0, bytes.length);
+      return this;
+    }
+
+    Writer nulString(String value) {
+      return bytes(value.getBytes(StandardCharsets.UTF_8)).u8(0);
+    }
+
+    Writer lenencBytes(byte[] bytes) {
+      if (bytes.length < 0xfb)
+        u8(bytes.length);
+      else if (bytes.length < 0x10000)
+        u8(0xfc).u16(bytes.length);
+      else
+        u8(0xfd).u16(bytes.length).u8(bytes.length >>> 16);
+      return bytes(bytes);
+    }
+  }
+}
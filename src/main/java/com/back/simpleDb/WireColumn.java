@@ -0,0 +1,147 @@
+package com.back.simpleDb;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+public record WireColumn(
+    String table,
+    String label,
+    String name,
+    int charset,
+    long length,
+    int type,
+    int flags,
+    int decimals
+) {
+
+  static final int TYPE_DECIMAL = 0;
+  static final int TYPE_TINY = 1;
+  static final int TYPE_SHORT = 2;
+  static final int TYPE_LONG = 3;
+  static final int TYPE_FLOAT = 4;
+  static final int TYPE_DOUBLE = 5;
+  static final int TYPE_NULL = 6;
+  static final int TYPE_TIMESTAMP = 7;
+  static final int TYPE_LONGLONG = 8;
+  static final int TYPE_INT24 = 9;
+  static final int TYPE_DATE = 10;
+  static final int TYPE_TIME = 11;
+  static final int TYPE_DATETIME = 12;
+  static final int TYPE_YEAR = 13;
+  static final int TYPE_BIT = 16;
+  static final int TYPE_NEWDECIMAL = 246;
+  static final int TYPE_GEOMETRY = 255;
+
+  private static final int BINARY_CHARSET = 63;
+  private static final int UNSIGNED_FLAG = 0x20;
+
+  static WireColumn parse(WireBuffer buffer) {
+    buffer.lenencString();
+    buffer.lenencString();
+    String table = buffer.lenencString();
+    buffer.lenencString();
+    String label = buffer.lenencString();
+    String name = buffer.lenencString();
+    buffer.lenenc();
+
+    return new WireColumn(table, label, name == null || name.isEmpty() ? label : name,
+        buffer.u16(), buffer.u32(), buffer.u8(), buffer.u16(), buffer.u8());
+  }
+
+  public boolean isUnsigned() {
+    return (flags & UNSIGNED_FLAG) != 0;
+  }
+
+  public boolean isBinary() {
+    return charset == BINARY_CHARSET;
+  }
+
+  public boolean isBit() {
+    return type == TYPE_BIT;
+  }
+
+  public Class<?> javaClass() {
+    return switch (type) {
+      case TYPE_TINY -> length == 1 ? Boolean.class : Integer.class;
+      case TYPE_SHORT, TYPE_INT24 -> Integer.class;
+      case TYPE_LONG -> isUnsigned() ? Long.class : Integer.class;
+      case TYPE_LONGLONG -> isUnsigned() ? BigInteger.class : Long.class;
+      case TYPE_FLOAT -> Float.class;
+      case TYPE_DOUBLE -> Double.class;
+      case TYPE_DECIMAL, TYPE_NEWDECIMAL -> BigDecimal.class;
+      case TYPE_DATETIME -> LocalDateTime.class;
+      case TYPE_TIMESTAMP -> Timestamp.class;
+      case TYPE_DATE, TYPE_YEAR -> Date.class;
+      case TYPE_TIME -> Time.class;
+      case TYPE_BIT -> length == 1 ? Boolean.class : byte[].class;
+      case TYPE_GEOMETRY -> byte[].class;
+      default -> isBinary() ? byte[].class : String.class;
+    };
+  }
+
+  public Object decode(byte[] raw) {
+    if (raw == null || type == TYPE_NULL)
+      return null;
+
+    if (type == TYPE_BIT)
+      return length == 1 ? bits(raw) != 0 : raw;
+
+    Class<?> javaClass = javaClass();
+
+    if (javaClass == byte[].class)
+      return raw;
+
+    String text = new String(raw, StandardCharsets.UTF_8);
+
+    if (javaClass == String.class)
+      return text;
+    if (javaClass == Boolean.class)
+      return Long.parseLong(text) != 0;
+    if (javaClass == Integer.class)
+      return Integer.parseInt(text);
+    if (javaClass == Long.class)
+      return Long.parseLong(text);
+    if (javaClass == BigInteger.class)
+      return new BigInteger(text);
+    if (javaClass == Float.class)
+      return Float.parseFloat(text);
+    if (javaClass == Double.class)
+      return Double.parseDouble(text);
+    if (javaClass == BigDecimal.class)
+      return new BigDecimal(text);
+    if (isZeroDate(text))
+      return null;
+    if (javaClass == LocalDateTime.class)
+      return parseDateTime(text);
+    if (javaClass == Timestamp.class)
+      return Timestamp.valueOf(parseDateTime(text));
+    if (javaClass == Time.class)
+      return Time.valueOf(LocalTime.parse(text));
+    if (type == TYPE_YEAR)
+      return Date.valueOf(text + "-01-01");
+    return Date.valueOf(text);
+  }
+
+  static long bits(byte[] raw) {
+    long value = 0;
+
+    for (byte b : raw) {
+      value = value << 8 | (b & 0xff);
+    }
+    return value;
+  }
+
+  static LocalDateTime parseDateTime(String text) {
+    return LocalDateTime.parse(text.length() == 10 ? text + "T00:00" : text.replace(' ', 'T'));
+  }
+
+  static boolean isZeroDate(String text) {
+    return text.startsWith("0000-00-00");
+  }
+}
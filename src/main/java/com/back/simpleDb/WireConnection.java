@@ -0,0 +1,593 @@
+package com.back.simpleDb;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.MessageDigest;
+import java.security.PublicKey;
+import java.security.spec.X509EncodedKeySpec;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLSyntaxErrorException;
+import java.sql.SQLTransactionRollbackException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import javax.crypto.Cipher;
+import lombok.Getter;
+
+public class WireConnection implements AutoCloseable {
+
+  static final int SERVER_MORE_RESULTS_EXISTS = 0x0008;
+  static final int SERVER_STATUS_NO_BACKSLASH_ESCAPES = 0x0200;
+
+  private static final int CLIENT_LONG_PASSWORD = 0x00000001;
+  private static final int CLIENT_FOUND_ROWS = 0x00000002;
+  private static final int CLIENT_LONG_FLAG = 0x00000004;
+  private static final int CLIENT_CONNECT_WITH_DB = 0x00000008;
+  private static final int CLIENT_PROTOCOL_41 = 0x00000200;
+  private static final int CLIENT_TRANSACTIONS = 0x00002000;
+  private static final int CLIENT_SECURE_CONNECTION = 0x00008000;
+  private static final int CLIENT_MULTI_STATEMENTS = 0x00010000;
+  private static final int CLIENT_MULTI_RESULTS = 0x00020000;
+  private static final int CLIENT_PS_MULTI_RESULTS = 0x00040000;
+  private static final int CLIENT_PLUGIN_AUTH = 0x00080000;
+  private static final int CLIENT_PLUGIN_AUTH_LENENC_CLIENT_DATA = 0x00200000;
+
+  private static final int COM_QUIT = 0x01;
+  private static final int COM_QUERY = 0x03;
+  private static final int COM_PING = 0x0e;
+  private static final int UTF8MB4_GENERAL_CI = 45;
+  private static final int MAX_PACKET = 0xffffff;
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final NioMySqlEngine engine;
+  private final NioMySqlEngine.EventLoop loop;
+  private final String user;
+  private final String password;
+  private final String database;
+  private final boolean multiStatements;
+  private final CompletableFuture<WireConnection> connected = new CompletableFuture<>();
+  private final Deque<Command> pending = new ArrayDeque<>();
+  private final Deque<ByteBuffer> outbound = new ArrayDeque<>();
+
+  private SocketChannel channel;
+  private SelectionKey key;
+  private ByteBuffer inbound = ByteBuffer.allocate(BUFFER_SIZE);
+  private WireBuffer.Writer partial;
+  private State state = State.CONNECTING;
+  private int sequence;
+  private String authPlugin;
+  private byte[] seed;
+
+  @Getter
+  private volatile String serverVersion;
+  @Getter
+  private volatile long connectionId;
+  @Getter
+  private volatile int serverStatus;
+  private volatile boolean closed = false;
+
+  WireConnection(NioMySqlEngine engine, NioMySqlEngine.EventLoop loop, String user,
+      String password, String database, boolean multiStatements) {
+    this.engine = engine;
+    this.loop = loop;
+    this.user = user;
+    this.password = password == null ? "" : password;
+    this.database = database == null ? "" : database;
+    this.multiStatements = multiStatements;
+  }
+
+  CompletableFuture<WireConnection> open(InetSocketAddress address) {
+    loop.execute(() -> {
+      try {
+        channel = SocketChannel.open();
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+
+        boolean connectedNow = channel.connect(address);
+        key = channel.register(loop.selector(),
+            connectedNow ? SelectionKey.OP_READ : SelectionKey.OP_CONNECT, this);
+        if (connectedNow)
+          state = State.HANDSHAKE;
+      } catch (IOException | RuntimeException e) {
+        fail(e);
+      }
+    });
+    return connected;
+  }
+
+  public CompletableFuture<WireResult> query(String sql) {
+    byte[] sqlBytes = sql.getBytes(StandardCharsets.UTF_8);
+    byte[] payload = new byte[sqlBytes.length + 1];
+
+    payload[0] = COM_QUERY;
+    System.arraycopy(sqlBytes, 0, payload, 1, sqlBytes.length);
+    return submit(payload);
+  }
+
+  public CompletableFuture<WireResult> ping() {
+    return submit(new byte[]{COM_PING});
+  }
+
+  public boolean isOpen() {
+    return !closed && state == State.READY;
+  }
+
+  @Override
+  public void close() {
+    if (closed)
+      return;
+
+    loop.execute(() -> {
+      if (closed)
+        return;
+
+      if (state == State.READY) {
+        try {
+          channel.write(packets(0, new byte[]{COM_QUIT}));
+        } catch (IOException ignored) {
+        }
+      }
+      fail(new SQLNonTransientConnectionException("Connection is closed"));
+    });
+  }
+
+  void onReady(SelectionKey key) {
+    try {
+      if (key.isValid() && key.isConnectable() && channel.finishConnect()) {
+        key.interestOps(SelectionKey.OP_READ);
+        state = State.HANDSHAKE;
+      }
+      if (key.isValid() && key.isWritable())
+        flush();
+      if (key.isValid() && key.isReadable())
+        read();
+    } catch (IOException | SQLException | GeneralSecurityException | RuntimeException e) {
+      fail(e);
+    }
+  }
+
+  private CompletableFuture<WireResult> submit(byte[] payload) {
+    Command command = new Command();
+
+    loop.execute(() -> {
+      if (closed || state != State.READY) {
+        command.future.completeExceptionally(
+            new SQLNonTransientConnectionException("Connection is closed"));
+        return;
+      }
+
+      pending.addLast(command);
+      write(packets(0, payload));
+    });
+    return command.future;
+  }
+
+  private void read() throws IOException, SQLException, GeneralSecurityException {
+    if (channel.read(inbound) < 0)
+      throw new SQLNonTransientConnectionException("Connection closed by server");
+
+    inbound.flip();
+    try {
+      while (!closed && readPacket()) {
+      }
+    } finally {
+      inbound.compact();
+    }
+
+    if (!inbound.hasRemaining())
+      inbound = ByteBuffer.allocate(inbound.capacity() * 2).put(inbound.flip());
+    else if (inbound.position() == 0 && inbound.capacity() > BUFFER_SIZE)
+      inbound = ByteBuffer.allocate(BUFFER_SIZE);
+  }
+
+  private boolean readPacket() throws IOException, SQLException, GeneralSecurityException {
+    if (inbound.remaining() < 4)
+      return false;
+
+    int start = inbound.position();
+    int length = (inbound.get(start) & 0xff) | (inbound.get(start + 1) & 0xff) << 8
+        | (inbound.get(start + 2) & 0xff) << 16;
+
+    if (inbound.remaining() < 4 + length)
+      return false;
+
+    sequence = inbound.get(start + 3) & 0xff;
+    byte[] payload = new byte[length];
+    inbound.position(start + 4);
+    inbound.get(payload);
+
+    if (length == MAX_PACKET) {
+      if (partial == null)
+        partial = new WireBuffer.Writer();
+      partial.bytes(payload);
+      return true;
+    }
+
+    if (partial != null) {
+      payload = partial.bytes(payload).toByteArray();
+      partial = null;
+    }
+
+    switch (state) {
+      case HANDSHAKE -> onHandshake(new WireBuffer(payload));
+      case AUTH -> onAuth(new WireBuffer(payload));
+      case READY -> onResponse(payload);
+      default -> throw new SQLNonTransientConnectionException("Unexpected packet: " + state);
+    }
+    return true;
+  }
+
+  private void onHandshake(WireBuffer buffer) throws SQLException, GeneralSecurityException {
+    if (buffer.peek() == 0xff)
+      throw error(buffer);
+
+    int protocolVersion = buffer.u8();
+
+    if (protocolVersion != 10)
+      throw new SQLNonTransientConnectionException(
+          "Unsupported protocol version: " + protocolVersion);
+
+    serverVersion = buffer.nulString();
+    connectionId = buffer.u32();
+    byte[] seedHead = buffer.bytes(8);
+    buffer.skip(1);
+    int serverCapabilities = buffer.u16();
+    buffer.skip(1);
+    serverStatus = buffer.u16();
+    serverCapabilities |= buffer.u16() << 16;
+    int seedLength = buffer.u8();
+    buffer.skip(10);
+    byte[] seedTail = buffer.bytes(Math.min(Math.max(12, seedLength - 9), buffer.remaining()));
+    buffer.skip(1);
+
+    authPlugin = (serverCapabilities & CLIENT_PLUGIN_AUTH) != 0
+        ? buffer.nulString() : "mysql_native_password";
+    seed = new byte[seedHead.length + seedTail.length];
+    System.arraycopy(seedHead, 0, seed, 0, seedHead.length);
+    System.arraycopy(seedTail, 0, seed, seedHead.length, seedTail.length);
+
+    if ((serverCapabilities & CLIENT_PROTOCOL_41) == 0)
+      throw new SQLNonTransientConnectionException("Server does not support protocol 4.1");
+
+    int capabilities = CLIENT_LONG_PASSWORD | CLIENT_FOUND_ROWS | CLIENT_LONG_FLAG
+        | CLIENT_PROTOCOL_41 | CLIENT_TRANSACTIONS | CLIENT_SECURE_CONNECTION
+        | CLIENT_MULTI_RESULTS | CLIENT_PS_MULTI_RESULTS | CLIENT_PLUGIN_AUTH
+        | CLIENT_PLUGIN_AUTH_LENENC_CLIENT_DATA;
+
+    if (!database.isEmpty())
+      capabilities |= CLIENT_CONNECT_WITH_DB;
+    if (multiStatements)
+      capabilities |= CLIENT_MULTI_STATEMENTS;
+    capabilities &= serverCapabilities;
+
+    byte[] authResponse = scramble(authPlugin, seed);
+    WireBuffer.Writer writer = new WireBuffer.Writer()
+        .u32(capabilities)
+        .u32(MAX_PACKET)
+        .u8(UTF8MB4_GENERAL_CI)
+        .zeros(23)
+        .nulString(user);
+
+    if ((capabilities & CLIENT_PLUGIN_AUTH_LENENC_CLIENT_DATA) != 0)
+      writer.lenencBytes(authResponse);
+    else
+      writer.u8(authResponse.length).bytes(authResponse);
+    if ((capabilities & CLIENT_CONNECT_WITH_DB) != 0)
+      writer.nulString(database);
+    if ((capabilities & CLIENT_PLUGIN_AUTH) != 0)
+      writer.nulString(authPlugin);
+
+    reply(writer.toByteArray());
+    state = State.AUTH;
+  }
+
+  private void onAuth(WireBuffer buffer) throws SQLException, GeneralSecurityException {
+    int header = buffer.u8();
+
+    switch (header) {
+      case 0x00 -> {
+        buffer.lenenc();
+        buffer.lenenc();
+        serverStatus = buffer.u16();
+        state = State.READY;
+        connected.complete(this);
+      }
+      case 0xfe -> {
+        authPlugin = buffer.nulString();
+        byte[] data = buffer.rest();
+        seed = data.length > 0 && data[data.length - 1] == 0
+            ? Arrays.copyOf(data, data.length - 1) : data;
+        reply(scramble(authPlugin, seed));
+      }
+      case 0x01 -> onAuthMoreData(buffer.rest());
+      case 0xff -> {
+        buffer.skip(-1);
+        throw error(buffer);
+      }
+      default -> throw new SQLNonTransientConnectionException("Unexpected auth packet: " + header);
+    }
+  }
+
+  private void onAuthMoreData(byte[] data) throws SQLException, GeneralSecurityException {
+    if (!authPlugin.equals("caching_sha2_password"))
+      throw new SQLFeatureNotSupportedException("Unsupported auth exchange: " + authPlugin);
+
+    if (data.length == 1 && data[0] == 3)
+      return;
+
+    if (data.length == 1 && data[0] == 4) {
+      reply(new byte[]{2});
+      return;
+    }
+
+    String pem = new String(data, StandardCharsets.US_ASCII)
+        .replaceAll("-----[^-]+-----", "")
+        .replaceAll("\\s", "");
+    PublicKey publicKey = KeyFactory.getInstance("RSA")
+        .generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(pem)));
+    byte[] plain = (password + "\0").getBytes(StandardCharsets.UTF_8);
+
+    for (int i = 0; i < plain.length; i++) {
+      plain[i] ^= seed[i % seed.length];
+    }
+
+    Cipher cipher = Cipher.getInstance("RSA/ECB/OAEPWithSHA-1AndMGF1Padding");
+    cipher.init(Cipher.ENCRYPT_MODE, publicKey);
+    reply(cipher.doFinal(plain));
+  }
+
+  private byte[] scramble(String plugin, byte[] seed)
+      throws SQLException, GeneralSecurityException {
+    if (password.isEmpty())
+      return new byte[0];
+
+    byte[] passwordBytes = password.getBytes(StandardCharsets.UTF_8);
+    byte[] seed20 = Arrays.copyOf(seed, 20);
+
+    return switch (plugin) {
+      case "mysql_native_password" -> {
+        MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+        byte[] stage1 = sha1.digest(passwordBytes);
+        byte[] stage2 = sha1.digest(stage1);
+        sha1.update(seed20);
+        yield xor(stage1, sha1.digest(stage2));
+      }
+      case "caching_sha2_password" -> {
+        MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+        byte[] stage1 = sha256.digest(passwordBytes);
+        byte[] stage2 = sha256.digest(stage1);
+        sha256.update(stage2);
+        yield xor(stage1, sha256.digest(seed20));
+      }
+      default -> throw new SQLFeatureNotSupportedException("Unsupported auth plugin: " + plugin);
+    };
+  }
+
+  private static byte[] xor(byte[] a, byte[] b) {
+    byte[] result = new byte[a.length];
+
+    for (int i = 0; i < a.length; i++) {
+      result[i] = (byte) (a[i] ^ b[i]);
+    }
+    return result;
+  }
+
+  private void onResponse(byte[] payload) throws SQLException {
+    Command command = pending.peekFirst();
+
+    if (command == null)
+      throw new SQLNonTransientConnectionException("Unexpected packet without a pending command");
+
+    if (command.read(payload)) {
+      pending.pollFirst();
+      command.finish();
+    }
+  }
+
+  private void reply(byte[] payload) {
+    write(packets(sequence + 1, payload));
+  }
+
+  private void write(ByteBuffer buffer) {
+    outbound.addLast(buffer);
+
+    try {
+      flush();
+    } catch (IOException e) {
+      fail(e);
+    }
+  }
+
+  private void flush() throws IOException {
+    while (!outbound.isEmpty()) {
+      ByteBuffer head = outbound.peekFirst();
+      channel.write(head);
+
+      if (head.hasRemaining()) {
+        key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        return;
+      }
+      outbound.pollFirst();
+    }
+    key.interestOps(SelectionKey.OP_READ);
+  }
+
+  private void fail(Throwable cause) {
+    if (closed)
+      return;
+
+    closed = true;
+    if (key != null)
+      key.cancel();
+    try {
+      if (channel != null)
+        channel.close();
+    } catch (IOException ignored) {
+    }
+
+    SQLException error = cause instanceof SQLException e ? e
+        : new SQLNonTransientConnectionException("Connection failed: " + cause.getMessage(),
+            cause);
+
+    connected.completeExceptionally(error);
+    for (Command command : pending) {
+      command.future.completeExceptionally(error);
+    }
+    pending.clear();
+    outbound.clear();
+    engine.onClosed(this);
+  }
+
+  private static ByteBuffer packets(int sequence, byte[] payload) {
+    int chunkCnt = payload.length / MAX_PACKET + 1;
+    ByteBuffer buffer = ByteBuffer.allocate(payload.length + 4 * chunkCnt);
+    int offset = 0;
+
+    for (int i = 0; i < chunkCnt; i++) {
+      int length = Math.min(MAX_PACKET, payload.length - offset);
+
+      buffer.put((byte) length).put((byte) (length >>> 8)).put((byte) (length >>> 16))
+          .put((byte) sequence++)
+          .put(payload, offset, length);
+      offset += length;
+    }
+    return buffer.flip();
+  }
+
+  static SQLException error(WireBuffer buffer) {
+    buffer.skip(1);
+    int code = buffer.u16();
+    String sqlState = "HY000";
+
+    if (buffer.remaining() > 0 && buffer.peek() == '#') {
+      buffer.skip(1);
+      sqlState = new String(buffer.bytes(5), StandardCharsets.US_ASCII);
+    }
+
+    String message = buffer.restString();
+
+    if (sqlState.startsWith("08"))
+      return new SQLNonTransientConnectionException(message, sqlState, code);
+    if (sqlState.startsWith("23"))
+      return new SQLIntegrityConstraintViolationException(message, sqlState, code);
+    if (sqlState.startsWith("40") || code == 1205 || code == 1213)
+      return new SQLTransactionRollbackException(message, sqlState, code);
+    if (sqlState.startsWith("42"))
+      return new SQLSyntaxErrorException(message, sqlState, code);
+    return new SQLException(message, sqlState, code);
+  }
+
+  private enum State {
+    CONNECTING, HANDSHAKE, AUTH, READY
+  }
+
+  private enum Phase {
+    HEADER, COLUMNS, COLUMNS_EOF, ROWS
+  }
+
+  private final class Command {
+
+    private final CompletableFuture<WireResult> future = new CompletableFuture<>();
+    private Phase phase = Phase.HEADER;
+    private WireResult first;
+    private WireResult last;
+    private SQLException error;
+    private List<WireColumn> columns;
+    private List<byte[][]> rows;
+    private int columnCnt;
+
+    boolean read(byte[] payload) {
+      WireBuffer buffer = new WireBuffer(payload);
+      int header = buffer.peek();
+
+      switch (phase) {
+        case HEADER -> {
+          if (header == 0x00) {
+            buffer.skip(1);
+            long affectedRows = buffer.lenenc();
+            long lastInsertId = buffer.lenenc();
+            int status = buffer.u16();
+            int warnings = buffer.u16();
+            return add(new WireResult(List.of(), List.of(), affectedRows, lastInsertId,
+                warnings, status));
+          }
+          if (header == 0xff) {
+            error = error(buffer);
+            return true;
+          }
+          if (header == 0xfb) {
+            error = new SQLFeatureNotSupportedException("LOAD DATA LOCAL INFILE is not supported");
+            reply(new byte[0]);
+            return false;
+          }
+
+          columnCnt = (int) buffer.lenenc();
+          columns = new ArrayList<>(columnCnt);
+          phase = Phase.COLUMNS;
+        }
+        case COLUMNS -> {
+          columns.add(WireColumn.parse(buffer));
+          if (columns.size() == columnCnt)
+            phase = Phase.COLUMNS_EOF;
+        }
+        case COLUMNS_EOF -> {
+          rows = new ArrayList<>();
+          phase = Phase.ROWS;
+        }
+        case ROWS -> {
+          if (header == 0xfe && payload.length < 9) {
+            buffer.skip(1);
+            int warnings = buffer.u16();
+            int status = buffer.u16();
+            return add(new WireResult(columns, rows, 0, 0, warnings, status));
+          }
+          if (header == 0xff) {
+            error = error(buffer);
+            return true;
+          }
+
+          byte[][] row = new byte[columnCnt][];
+          for (int i = 0; i < columnCnt; i++) {
+            row[i] = buffer.lenencBytes();
+          }
+          rows.add(row);
+        }
+      }
+      return false;
+    }
+
+    private boolean add(WireResult result) {
+      serverStatus = result.getServerStatus();
+
+      if (first == null)
+        first = result;
+      else
+        last.setNext(result);
+      last = result;
+      phase = Phase.HEADER;
+
+      return (result.getServerStatus() & SERVER_MORE_RESULTS_EXISTS) == 0;
+    }
+
+    void finish() {
+      if (error != null)
+        future.completeExceptionally(error);
+      else
+        future.complete(first);
+    }
+  }
+}
@@ -0,0 +1,49 @@
+package com.back.simpleDb;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import lombok.Getter;
+
+@Getter
+public class WireResult {
+
+  private final List<WireColumn> columns;
+  private final List<byte[][]> rows;
+  private final long affectedRows;
+  private final long lastInsertId;
+  private final int warnings;
+  private final int serverStatus;
+  private WireResult next;
+
+  WireResult(List<WireColumn> columns, List<byte[][]> rows, long affectedRows,
+      long lastInsertId, int warnings, int serverStatus) {
+    this.columns = columns;
+    this.rows = rows;
+    this.affectedRows = affectedRows;
+    this.lastInsertId = lastInsertId;
+    this.warnings = warnings;
+    this.serverStatus = serverStatus;
+  }
+
+  public boolean isResultSet() {
+    return !columns.isEmpty();
+  }
+
+  public int getRowCount() {
+    return rows.size();
+  }
+
+  public Object getObject(int row, int column) {
+    return columns.get(column).decode(rows.get(row)[column]);
+  }
+
+  public String getString(int row, int column) {
+    byte[] raw = rows.get(row)[column];
+
+    return raw == null ? null : new String(raw, StandardCharsets.UTF_8);
+  }
+
+  void setNext(WireResult next) {
+    this.next = next;
+  }
+}
@@ -0,0 +1,239 @@
+package com.back.simpleDb;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.Getter;
+import org.junit.platform.commons.logging.Logger;
+import org.junit.platform.commons.logging.LoggerFactory;
+
+public class WriteBehind implements AutoCloseable {
+
+  private static final AtomicInteger threadNo = new AtomicInteger();
+
+  private final SimpleDb simpleDb;
+  private final WriteBehindOptions options;
+  private final BlockingQueue<Entry> queue;
+  private final Thread flusher;
+  @Getter
+  private final LongAdder writeCount = new LongAdder();
+  @Getter
+  private final LongAdder commitCount = new LongAdder();
+  @Getter
+  private final LongAdder failedCount = new LongAdder();
+  private final Logger logger = LoggerFactory.getLogger(WriteBehind.class);
+  private volatile boolean closed = false;
+
+  WriteBehind(SimpleDb simpleDb, WriteBehindOptions options) {
+    this.simpleDb = simpleDb;
+    this.options = options;
+    this.queue = new ArrayBlockingQueue<>(options.getCapacity());
+    this.flusher = new Thread(this::runFlusher,
+        "SimpleDb-write-behind-" + threadNo.incrementAndGet());
+    flusher.setDaemon(true);
+    flusher.start();
+  }
+
+  public CompletableFuture<Void> enqueue(String sql, Object... params) {
+    if (SqlStatements.isSelect(sql))
+      throw new IllegalArgumentException("Write-behind accepts only write statements: " + sql);
+
+    Entry entry = new Entry(sql, params, new CompletableFuture<>());
+    offer(entry);
+    return entry.future();
+  }
+
+  public CompletableFuture<Void> flushAsync() {
+    Entry barrier = new Entry(null, null, new CompletableFuture<>());
+    offer(barrier);
+    return barrier.future();
+  }
+
+  public void flush() {
+    flushAsync().join();
+  }
+
+  public int getPendingCount() {
+    return queue.size();
+  }
+
+  @Override
+  public void close() {
+    if (closed)
+      return;
+
+    closed = true;
+    try {
+      if (!queue.offer(new Entry(null, null, new CompletableFuture<>()),
+          options.getEnqueueTimeoutMillis(), TimeUnit.MILLISECONDS))
+        flusher.interrupt();
+      flusher.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    for (Entry entry; (entry = queue.poll()) != null; ) {
+      entry.future().completeExceptionally(
+          new RejectedExecutionException("Write-behind is closed"));
+    }
+    simpleDb.onWriteBehindClosed(this);
+  }
+
+  private void offer(Entry entry) {
+    if (closed)
+      throw new RejectedExecutionException("Write-behind is closed");
+
+    try {
+      if (!queue.offer(entry, options.getEnqueueTimeoutMillis(), TimeUnit.MILLISECONDS))
+        throw new RejectedExecutionException("Write-behind queue is full, capacity: %d"
+            .formatted(options.getCapacity()));
+      if (closed && queue.remove(entry))
+        throw new RejectedExecutionException("Write-behind is closed");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RejectedExecutionException("Interrupted while waiting for write-behind capacity",
+          e);
+    }
+  }
+
+  private void runFlusher() {
+    List<Entry> group = new ArrayList<>(options.getMaxBatchSize());
+
+    while (true) {
+      try {
+        Entry first = queue.take();
+        long deadline = System.nanoTime()
+            + TimeUnit.MILLISECONDS.toNanos(options.getMaxDelayMillis());
+        boolean barrier = first.isBarrier();
+        group.add(first);
+
+        while (!barrier && group.size() < options.getMaxBatchSize()) {
+          long remaining = deadline - System.nanoTime();
+          Entry next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+
+          if (next == null)
+            break;
+          group.add(next);
+          barrier = next.isBarrier();
+        }
+      } catch (InterruptedException e) {
+        break;
+      }
+
+      write(group);
+      group.clear();
+
+      if (closed && queue.isEmpty())
+        break;
+    }
+  }
+
+  private void write(List<Entry> group) {
+    List<Entry> writes = group.stream().filter(entry -> !entry.isBarrier()).toList();
+
+    if (!writes.isEmpty()) {
+      AtomicBoolean written = new AtomicBoolean();
+
+      try {
+        simpleDb.withConnection(() -> simpleDb.inTransaction(() -> {
+          written.set(false);
+          writeAll(writes);
+          written.set(true);
+        }));
+        commitCount.increment();
+        writeCount.add(writes.size());
+        writes.forEach(entry -> entry.future().complete(null));
+      } catch (RuntimeException e) {
+        if (written.get()) {
+          logger.error(e, () -> "Commit of %d writes failed, outcome unknown: %s"
+              .formatted(writes.size(), e.getMessage()));
+          failedCount.add(writes.size());
+          writes.forEach(entry -> entry.future().completeExceptionally(e));
+        } else {
+          logger.warn(e, () -> "Group commit of %d writes failed, writing one by one: %s"
+              .formatted(writes.size(), e.getMessage()));
+          writes.forEach(this::writeOne);
+        }
+      }
+    }
+
+    for (Entry entry : group) {
+      if (entry.isBarrier())
+        entry.future().complete(null);
+    }
+  }
+
+  private void writeAll(List<Entry> writes) {
+    Connection conn = simpleDb.getConnection();
+    int from = 0;
+
+    while (from < writes.size()) {
+      String sql = writes.get(from).sql();
+      int to = from + 1;
+
+      while (to < writes.size() && writes.get(to).sql().equals(sql))
+        to++;
+
+      executeBatch(conn, sql, writes.subList(from, to));
+      from = to;
+    }
+  }
+
+  private void executeBatch(Connection conn, String sql, List<Entry> entries) {
+    QueryTimer timer = new QueryTimer(simpleDb, sql, entries.stream()
+        .map(entry -> (Object) Arrays.asList(entry.params()))
+        .toList());
+
+    try (PreparedStatement ps = conn.prepareStatement(sql)) {
+      for (Entry entry : entries) {
+        JdbcTypes.bindAll(ps, entry.params());
+        ps.addBatch();
+      }
+      timer.prepared();
+
+      long affectedRowsCnt = 0;
+      for (int cnt : ps.executeBatch()) {
+        if (cnt > 0)
+          affectedRowsCnt += cnt;
+      }
+      timer.executed();
+      timer.mapped(affectedRowsCnt);
+      simpleDb.onWrite(sql);
+    } catch (SQLException e) {
+      timer.failed(e);
+      throw new RuntimeException("Write-behind batch failed", e);
+    } finally {
+      timer.finish();
+    }
+  }
+
+  private void writeOne(Entry entry) {
+    try {
+      simpleDb.withConnection(() -> simpleDb.run(entry.sql(), entry.params()));
+      commitCount.increment();
+      writeCount.increment();
+      entry.future().complete(null);
+    } catch (RuntimeException e) {
+      failedCount.increment();
+      entry.future().completeExceptionally(e);
+    }
+  }
+
+  private record Entry(String sql, Object[] params, CompletableFuture<Void> future) {
+
+    boolean isBarrier() {
+      return sql == null;
+    }
+  }
+}
@@ -0,0 +1,38 @@
+package com.back.simpleDb;
+
+import lombok.Getter;
+
+@Getter
+public class WriteBehindOptions {
+
+  private int capacity = 10_000;
+  private int maxBatchSize = 500;
+  private long maxDelayMillis = 10;
+  private long enqueueTimeoutMillis = 30_000;
+
+  public WriteBehindOptions capacity(int capacity) {
+    if (capacity < 1)
+      throw new IllegalArgumentException("capacity must be positive: " + capacity);
+
+    this.capacity = capacity;
+    return this;
+  }
+
+  public WriteBehindOptions maxBatchSize(int maxBatchSize) {
+    if (maxBatchSize < 1)
+      throw new IllegalArgumentException("maxBatchSize must be positive: " + maxBatchSize);
+
+    this.maxBatchSize = maxBatchSize;
+    return this;
+  }
+
+  public WriteBehindOptions maxDelayMillis(long maxDelayMillis) {
+    this.maxDelayMillis = maxDelayMillis;
+    return this;
+  }
+
+  public WriteBehindOptions enqueueTimeoutMillis(long enqueueTimeoutMillis) {
+    this.enqueueTimeoutMillis = enqueueTimeoutMillis;
+    return this;
+  }
+}
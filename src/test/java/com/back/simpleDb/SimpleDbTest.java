@@ -1,19 +1,43 @@
 package com.back.simpleDb;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import com.back.model.Article;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLSyntaxErrorException;
+import java.sql.SQLTransactionRollbackException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.*;
 
 @TestMethodOrder(MethodOrderer.MethodName.class)
@@ -535,4 +559,1365 @@ public class SimpleDbTest {
 
     assertThat(newCount).isEqualTo(oldCount + 1);
   }
-}
\ No newline at end of file
+
+  @Test
+  @DisplayName("close returns connection to pool")
+  public void t020() {
+    simpleDb.genSql()
+        .append("SELECT 1")
+        .selectLong();
+
+    PoolStats borrowed = simpleDb.getPoolStats();
+
+    // 커넥션을 닫으면 실제로 닫히지 않고 풀로 반환됩니다.
+    simpleDb.close();
+
+    PoolStats returned = simpleDb.getPoolStats();
+
+    assertThat(returned.active()).isEqualTo(borrowed.active() - 1);
+    assertThat(returned.idle()).isGreaterThanOrEqualTo(1);
+    assertThat(returned.total()).isEqualTo(borrowed.total());
+  }
+
+  @Test
+  @DisplayName("prepared statement cache")
+  public void t021() {
+    StatementCacheStats stats = simpleDb.getStatementCacheStats();
+
+    simpleDb.genSql()
+        .append("SELECT COUNT(*) FROM article WHERE id > ?", 0)
+        .selectLong();
+
+    long oldHits = stats.getHits();
+
+    // 같은 SQL을 다시 실행하면 캐시된 PreparedStatement를 재사용합니다.
+    long count = simpleDb.genSql()
+        .append("SELECT COUNT(*) FROM article WHERE id > ?", 3)
+        .selectLong();
+
+    assertThat(count).isEqualTo(3);
+    assertThat(stats.getHits()).isEqualTo(oldHits + 1);
+  }
+
+  record ArticleSummary(long id, String title, boolean isBlind) {
+
+  }
+
+  @Test
+  @DisplayName("selectRows, record")
+  public void t022() {
+    Sql sql = simpleDb.genSql();
+        /*
+        == rawSql ==
+        SELECT id, title, isBlind
+        FROM article
+        ORDER BY id ASC
+        */
+    sql.append("SELECT id, title, isBlind FROM article ORDER BY id ASC");
+    List<ArticleSummary> summaries = sql.selectRows(ArticleSummary.class);
+
+    assertThat(summaries).hasSize(6);
+
+    IntStream.range(0, summaries.size()).forEach(i -> {
+      long id = i + 1;
+
+      ArticleSummary summary = summaries.get(i);
+
+      assertThat(summary.id()).isEqualTo(id);
+      assertThat(summary.title()).isEqualTo("제목%d".formatted(id));
+      assertThat(summary.isBlind()).isEqualTo(id > 3);
+    });
+  }
+
+  @Test
+  @DisplayName("stream, Article")
+  public void t023() {
+    Sql sql = simpleDb.genSql();
+        /*
+        == rawSql ==
+        SELECT *
+        FROM article
+        ORDER BY id ASC
+        */
+    sql.append("SELECT * FROM article ORDER BY id ASC");
+
+    // 한 행씩 읽어서 매핑하고, 스트림을 닫으면 ResultSet과 Statement가 반환됩니다.
+    List<Long> ids;
+    try (Stream<Article> articles = sql.stream(Article.class)) {
+      ids = articles.map(Article::getId).toList();
+    }
+
+    assertThat(ids).containsExactly(1L, 2L, 3L, 4L, 5L, 6L);
+
+    long count = simpleDb.genSql()
+        .append("SELECT COUNT(*) FROM article")
+        .selectLong();
+
+    assertThat(count).isEqualTo(6);
+  }
+
+  @Test
+  @DisplayName("batch insert")
+  public void t024() {
+    Batch batch = simpleDb.genBatch("""
+        INSERT INTO article
+        SET createdDate = NOW(),
+        modifiedDate = NOW(),
+        title = ?,
+        `body` = ?
+        """).batchSize(2);
+
+    // 2개씩 묶어서 전송되며, 생성된 주키가 모두 반환됩니다.
+    IntStream.rangeClosed(1, 5).forEach(no -> batch.add("새 제목%d".formatted(no), "새 내용"));
+
+    List<Long> newIds = batch.insert();
+
+    assertThat(newIds).containsExactly(7L, 8L, 9L, 10L, 11L);
+
+    // 수정과 삭제도 묶어서 전송되며, 영향받은 행 수의 합계를 반환합니다.
+    long updatedCnt = simpleDb.genBatch("UPDATE article SET title = ? WHERE id = ?")
+        .add("수정된 제목", 7)
+        .add("수정된 제목", 8)
+        .add("수정된 제목", 100)
+        .update();
+    long deletedCnt = simpleDb.genBatch("DELETE FROM article WHERE id = ?")
+        .add(10)
+        .add(11)
+        .delete();
+
+    assertThat(updatedCnt).isEqualTo(2);
+    assertThat(deletedCnt).isEqualTo(2);
+
+    SimpleDb rewriteDb = new SimpleDb("localhost", "root", "lldj123414", "simpleDb__test");
+    rewriteDb.setRewriteBatchedStatements(true);
+
+    try {
+      Batch rewritten = rewriteDb.genBatch("""
+          INSERT INTO article
+          SET createdDate = NOW(),
+          modifiedDate = NOW(),
+          title = ?,
+          `body` = ?
+          """);
+      IntStream.rangeClosed(1, 3)
+          .forEach(no -> rewritten.add("재작성 제목%d".formatted(no), "새 내용"));
+
+      // 여러 행을 한 문장으로 합쳐 보내도 생성된 주키는 행마다 돌려받습니다.
+      assertThat(rewritten.insert()).containsExactly(12L, 13L, 14L);
+      assertThat(rewriteDb.genSql()
+          .append("SELECT COUNT(*) FROM article WHERE title LIKE ?", "재작성 제목%")
+          .selectLong()).isEqualTo(3);
+
+      // 재작성된 UPDATE 배치도 실제로 바뀐 행 수를 그대로 돌려줍니다.
+      Batch rewrittenUpdate = rewriteDb.genBatch("UPDATE article SET title = ? WHERE id = ?");
+      IntStream.of(1, 2, 3, 12, 13, 100)
+          .forEach(id -> rewrittenUpdate.add("재작성 수정", id));
+
+      assertThat(rewrittenUpdate.update()).isEqualTo(5);
+
+      // 드라이버가 행 수를 알려주지 않으면(SUCCESS_NO_INFO) 0 대신 그 값을 그대로 돌려줍니다.
+      Batch upsert = rewriteDb.genBatch("""
+          INSERT INTO article (id, createdDate, modifiedDate, title, `body`)
+          VALUES (?, NOW(), NOW(), '업서트', '내용')
+          ON DUPLICATE KEY UPDATE title = VALUES(title)
+          """);
+      IntStream.of(1, 2, 3, 4).forEach(upsert::add);
+
+      assertThat(upsert.update()).isEqualTo(Statement.SUCCESS_NO_INFO);
+      assertThat(rewriteDb.genSql()
+          .append("SELECT COUNT(*) FROM article WHERE title = ?", "업서트")
+          .selectLong()).isEqualTo(4);
+    } finally {
+      rewriteDb.shutdown();
+    }
+  }
+
+  @Test
+  @DisplayName("inTransaction, nested rollback")
+  public void t025() {
+    long oldCount = simpleDb.genSql()
+        .append("SELECT COUNT(*)")
+        .append("FROM article")
+        .selectLong();
+
+    simpleDb.inTransaction(() -> {
+      simpleDb.genSql()
+          .append("INSERT INTO article ")
+          .append("(createdDate, modifiedDate, title, body)")
+          .appendIn("VALUES (NOW(), NOW(), ?)", "새 제목", "새 내용")
+          .insert();
+
+      // 중첩된 트랜잭션은 세이브포인트까지만 롤백됩니다.
+      assertThatThrownBy(() -> simpleDb.inTransaction(() -> {
+        simpleDb.genSql()
+            .append("DELETE FROM article")
+            .delete();
+
+        throw new IllegalStateException("rollback nested");
+      })).isInstanceOf(IllegalStateException.class);
+    });
+
+    long newCount = simpleDb.genSql()
+        .append("SELECT COUNT(*)")
+        .append("FROM article")
+        .selectLong();
+
+    assertThat(newCount).isEqualTo(oldCount + 1);
+    assertThat(simpleDb.isInTransaction()).isFalse();
+  }
+
+  @Test
+  @DisplayName("withConnection, scoped connections")
+  public void t026() throws InterruptedException {
+    int numberOfTasks = 200;
+    ExecutorService executorService = Executors.newFixedThreadPool(50);
+    AtomicInteger successCounter = new AtomicInteger(0);
+    CountDownLatch latch = new CountDownLatch(numberOfTasks);
+
+    // 스코프 동안에만 풀의 커넥션을 빌려 쓰고, 스코프가 끝나면 반환합니다.
+    Runnable task = () -> {
+      try {
+        long count = simpleDb.withConnection(() -> simpleDb.genSql()
+            .append("SELECT COUNT(*) FROM article")
+            .selectLong());
+
+        if (count == 6)
+          successCounter.incrementAndGet();
+      } finally {
+        latch.countDown();
+      }
+    };
+
+    for (int i = 0; i < numberOfTasks; i++) {
+      executorService.submit(task);
+    }
+
+    latch.await(10, TimeUnit.SECONDS);
+    executorService.shutdown();
+
+    assertThat(successCounter.get()).isEqualTo(numberOfTasks);
+    assertThat(simpleDb.getPoolStats().total())
+        .isLessThanOrEqualTo(simpleDb.getConnectionPool().getMaxSize());
+  }
+
+  @Test
+  @DisplayName("async queries")
+  public void t027() {
+    // 서로 독립적인 쿼리를 병렬로 실행하고 결과를 조합합니다.
+    CompletableFuture<List<Article>> blindArticles = simpleDb.genSql()
+        .append("SELECT * FROM article WHERE isBlind = ? ORDER BY id ASC", true)
+        .selectRowsAsync(Article.class);
+
+    CompletableFuture<Long> count = simpleDb.genSql()
+        .append("SELECT COUNT(*) FROM article")
+        .selectLongAsync();
+
+    List<Long> result = blindArticles
+        .thenCombine(count, (articles, total) -> List.of((long) articles.size(), total))
+        .join();
+
+    assertThat(result).containsExactly(3L, 6L);
+  }
+
+  @Test
+  @DisplayName("query result cache")
+  public void t028() {
+    QueryCacheStats oldStats = simpleDb.getQueryCacheStats();
+
+    Article article = simpleDb.genSql()
+        .append("SELECT * FROM article WHERE id = ?", 1)
+        .cached()
+        .selectRow(Article.class);
+
+    // 같은 쿼리는 캐시에서 반환됩니다.
+    Article cachedArticle = simpleDb.genSql()
+        .append("SELECT * FROM article WHERE id = ?", 1)
+        .cached()
+        .selectRow(Article.class);
+
+    assertThat(cachedArticle.getTitle()).isEqualTo(article.getTitle());
+    assertThat(simpleDb.getQueryCacheStats().hits()).isEqualTo(oldStats.hits() + 1);
+
+    // 테이블이 수정되면 해당 테이블의 캐시는 무효화됩니다.
+    simpleDb.genSql()
+        .append("UPDATE article")
+        .append("SET title = ?", "제목 new")
+        .append("WHERE id = ?", 1)
+        .update();
+
+    Article updatedArticle = simpleDb.genSql()
+        .append("SELECT * FROM article WHERE id = ?", 1)
+        .cached()
+        .selectRow(Article.class);
+
+    assertThat(updatedArticle.getTitle()).isEqualTo("제목 new");
+
+    ArticleDraft draft = simpleDb.genSql()
+        .append("SELECT * FROM article WHERE id = ?", 2)
+        .cached()
+        .selectRow(ArticleDraft.class);
+    draft.title = "캐시 밖에서 바꾼 제목";
+
+    // 캐시에는 복사본이 들어 있어, 반환된 객체를 바꿔도 다음 조회에 영향을 주지 않습니다.
+    assertThat(simpleDb.genSql()
+        .append("SELECT * FROM article WHERE id = ?", 2)
+        .cached()
+        .selectRow(ArticleDraft.class).title).isEqualTo("제목2");
+
+    QueryCache queryCache = simpleDb.getQueryCache();
+    QueryCache.Key key = new QueryCache.Key("SELECT 1 FROM article", List.of(), Long.class, null);
+    long generation = queryCache.generation(Set.of("article"));
+    queryCache.invalidate(Set.of("article"));
+    queryCache.put(key, 1L, Set.of("article"), 60_000, generation);
+
+    // 조회를 시작한 뒤에 테이블이 바뀌었다면, 오래된 결과는 캐시에 넣지 않습니다.
+    assertThat(queryCache.get(key)).isNull();
+  }
+
+  @Test
+  @DisplayName("query listener and metrics")
+  public void t029() {
+    List<QueryEvent> events = new CopyOnWriteArrayList<>();
+    SimpleDbListener listener = new SimpleDbListener() {
+      @Override
+      public void onQuery(QueryEvent event) {
+        events.add(event);
+      }
+    };
+    long oldQueryCount = simpleDb.getMetrics().getQueryCount().sum();
+
+    simpleDb.addListener(listener);
+    try {
+      simpleDb.genSql()
+          .append("SELECT * FROM article WHERE id > ?", 2)
+          .selectRows(Article.class);
+    } finally {
+      simpleDb.removeListener(listener);
+    }
+
+    // 실행 단계별 시간과 반환된 행 수가 전달됩니다.
+    assertThat(events).hasSize(1);
+    QueryEvent event = events.get(0);
+    assertThat(event.rows()).isEqualTo(4);
+    assertThat(event.bindParams()).containsExactly(2);
+    assertThat(event.failed()).isFalse();
+    assertThat(event.totalNanos()).isGreaterThan(0);
+    assertThat(simpleDb.getMetrics().getQueryCount().sum()).isEqualTo(oldQueryCount + 1);
+
+    events.clear();
+    simpleDb.addListener(listener);
+    try (Stream<Article> articles = simpleDb.genSql()
+        .append("SELECT * FROM article WHERE id > ?", 2)
+        .stream(Article.class)) {
+      assertThat(articles.count()).isEqualTo(4);
+
+      simpleDb.genBatch("UPDATE article SET title = title WHERE id = ?")
+          .add(1)
+          .add(2)
+          .update();
+    } finally {
+      simpleDb.removeListener(listener);
+    }
+
+    // 스트림은 다 읽거나 닫힐 때 읽은 행 수와 함께 기록됩니다.
+    assertThat(events).hasSize(2);
+    assertThat(events.get(0).rows()).isEqualTo(4);
+    assertThat(events.get(0).bindParams()).containsExactly(2);
+
+    // 배치는 묶인 행마다 바인딩 값을 전달합니다.
+    assertThat(events.get(1).bindParams()).containsExactly(List.of(1), List.of(2));
+  }
+
+  @Test
+  @DisplayName("query template")
+  public void t030() {
+    QueryTemplate template = simpleDb.genTemplate("""
+        SELECT id
+        FROM article
+        WHERE id IN (?)
+        AND title != '?'
+        ORDER BY id
+        """);
+
+    /*
+    == rawSql ==
+    SELECT id
+    FROM article
+    WHERE id IN (?, ?, ?, ?)
+    AND title != '?'
+    ORDER BY id
+    */
+    List<Long> foundIds = template.bind(List.of(1, 2, 3)).selectLongs();
+    long oldHits = simpleDb.getStatementCacheStats().getHits();
+
+    // IN 목록은 크기 구간별로 같은 SQL을 사용하므로, 4개짜리 목록도 캐시된 문장을 재사용합니다.
+    List<Long> otherIds = template.bind(new long[]{2, 4, 5, 6}).selectLongs();
+
+    assertThat(template.getParameterCount()).isEqualTo(1);
+    assertThat(foundIds).containsExactly(1L, 2L, 3L);
+    assertThat(otherIds).containsExactly(2L, 4L, 5L, 6L);
+    assertThat(simpleDb.getStatementCacheStats().getHits()).isGreaterThan(oldHits);
+  }
+
+  enum Grade {
+    GOLD, SILVER
+  }
+
+  record ArticleMeta(long id, Grade grade, BigDecimal score, byte[] thumbnail, boolean featured) {
+
+  }
+
+  @Test
+  @DisplayName("typed binding and extraction")
+  public void t031() {
+    simpleDb.run("DROP TABLE IF EXISTS article_meta");
+    simpleDb.run("""
+        CREATE TABLE article_meta (
+            id INT UNSIGNED NOT NULL AUTO_INCREMENT,
+            PRIMARY KEY(id),
+            grade VARCHAR(10) NOT NULL,
+            score DECIMAL(10, 2) NOT NULL,
+            thumbnail BLOB NULL,
+            featured BIT(1) NOT NULL DEFAULT 0
+        )
+        """);
+
+    try {
+      // enum은 이름으로, byte[], BigDecimal, boolean은 각 타입에 맞는 setter로 바인딩됩니다.
+      long id = simpleDb.genSql()
+          .append("INSERT INTO article_meta")
+          .append("SET grade = ?", Grade.GOLD)
+          .append(", score = ?", new BigDecimal("12.50"))
+          .append(", thumbnail = ?", new byte[]{1, 2, 3})
+          .append(", featured = ?", true)
+          .insert();
+
+      ArticleMeta meta = simpleDb.genSql()
+          .append("SELECT * FROM article_meta WHERE id = ?", id)
+          .selectRow(ArticleMeta.class);
+      Map<String, Object> row = simpleDb.genSql()
+          .append("SELECT * FROM article_meta WHERE id = ?", id)
+          .selectRow();
+
+      assertThat(meta.grade()).isEqualTo(Grade.GOLD);
+      assertThat(meta.score()).isEqualByComparingTo("12.5");
+      assertThat(meta.thumbnail()).containsExactly(1, 2, 3);
+      assertThat(meta.featured()).isTrue();
+      assertThat(row.get("id")).isEqualTo(id);
+      assertThat(row.get("grade")).isEqualTo("GOLD");
+      assertThat(row.get("featured")).isEqualTo(true);
+    } finally {
+      simpleDb.run("DROP TABLE IF EXISTS article_meta");
+    }
+  }
+
+  @Test
+  @DisplayName("selectColumnar")
+  public void t032() {
+    ColumnarResult result = simpleDb.genSql()
+        .append("SELECT id, title, isBlind, createdDate")
+        .append("FROM article")
+        .append("ORDER BY id")
+        .selectColumnar();
+
+    // 컬럼별로 기본형 배열, 비트셋, 사전 인코딩 문자열로 저장됩니다.
+    assertThat(result.getRowCount()).isEqualTo(6);
+    assertThat(result.getColumnNames()).containsExactly("id", "title", "isBlind", "createdDate");
+    assertThat(result.getLongs("id")).containsExactly(1, 2, 3, 4, 5, 6);
+    assertThat(result.getDictionary("title")).hasSize(6);
+    assertThat(result.getString("title", 0)).isEqualTo("제목1");
+    assertThat(result.getBooleans("isBlind").cardinality()).isEqualTo(3);
+    assertThat(result.getDateTime("createdDate", 0)).isNotNull();
+    assertThat(result.isNull("createdDate", 0)).isFalse();
+
+    // 한 칸씩 읽을 때는 컬럼 전체를 복사하지 않고, 배열로 꺼낸 값은 복사본이라 원본이 바뀌지 않습니다.
+    int idColumn = result.columnIndex("id");
+    long idSum = 0;
+    for (int row = 0; row < result.getRowCount(); row++) {
+      idSum += result.getLong(idColumn, row);
+    }
+    assertThat(idSum).isEqualTo(21);
+
+    result.getLongs("id")[0] = 100;
+    assertThat(result.getLong("id", 0)).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("read replica routing")
+  public void t033() {
+    SimpleDb routedDb = new SimpleDb("localhost", 3307, "root", "lldj123414", "simpleDb__test");
+    routedDb.addReplica("localhost", 3307);
+    routedDb.setReadYourWritesMillis(60_000);
+    ConnectionPool replicaPool = routedDb.getReplicaPools().get(0);
+
+    try {
+      // 트랜잭션 밖의 SELECT는 레플리카로 전달됩니다.
+      long count = routedDb.genSql()
+          .append("SELECT COUNT(*) FROM article")
+          .selectLong();
+
+      assertThat(count).isEqualTo(6);
+      assertThat(replicaPool.getStats().active()).isEqualTo(1);
+      assertThat(routedDb.getPoolStats().active()).isEqualTo(0);
+
+      routedDb.close();
+
+      // 쓰기 이후의 읽기는 설정된 시간 동안 프라이머리에서 수행됩니다.
+      routedDb.genSql()
+          .append("UPDATE article SET title = ? WHERE id = ?", "제목 new", 1)
+          .update();
+      String title = routedDb.genSql()
+          .append("SELECT title FROM article WHERE id = ?", 1)
+          .selectString();
+
+      assertThat(title).isEqualTo("제목 new");
+      assertThat(replicaPool.getStats().active()).isEqualTo(0);
+      assertThat(routedDb.getPoolStats().active()).isEqualTo(1);
+    } finally {
+      routedDb.shutdown();
+    }
+
+    // WITH 문은 CTE 목록 다음의 본문이 SELECT일 때만 읽기로 보고, UPDATE/DELETE는 프라이머리로 보냅니다.
+    assertThat(SqlStatements.isReplicaSafe("""
+        WITH recent AS (SELECT id FROM article WHERE title != '(UPDATE)')
+        SELECT * FROM article WHERE id IN (SELECT id FROM recent)
+        """)).isTrue();
+    assertThat(SqlStatements.isReplicaSafe("""
+        WITH RECURSIVE ids (id) AS (SELECT 1 UNION ALL SELECT id + 1 FROM ids WHERE id < 3)
+        UPDATE article SET title = 'x' WHERE id IN (SELECT id FROM ids)
+        """)).isFalse();
+    assertThat(SqlStatements.isReplicaSafe(
+        "WITH old AS (SELECT id FROM article) DELETE FROM article WHERE id IN (SELECT id FROM old)"))
+        .isFalse();
+  }
+
+  static class ArticleDraft {
+
+    private Long id;
+    private LocalDateTime createdDate = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+    private LocalDateTime modifiedDate = createdDate;
+    private String title;
+    private String body;
+    private boolean isBlind;
+
+    ArticleDraft() {
+    }
+
+    ArticleDraft(String title, String body) {
+      this.title = title;
+      this.body = body;
+    }
+  }
+
+  @Test
+  @DisplayName("insertAll, upsertAll")
+  public void t034() {
+    List<ArticleDraft> drafts = IntStream.rangeClosed(1, 3)
+        .mapToObj(no -> new ArticleDraft("새 제목%d".formatted(no), "새 내용%d".formatted(no)))
+        .toList();
+
+    /*
+    == rawSql ==
+    INSERT INTO `article` (`createdDate`, `modifiedDate`, `title`, `body`, `isBlind`)
+    VALUES (?, ?, ?, ?, ?), (?, ?, ?, ?, ?), (?, ?, ?, ?, ?)
+    */
+    List<Long> ids = simpleDb.insertAll("article", drafts);
+
+    // 생성된 id가 순서대로 반환되고 객체에도 채워집니다.
+    assertThat(ids).containsExactly(7L, 8L, 9L);
+    assertThat(drafts).extracting(draft -> draft.id).containsExactly(7L, 8L, 9L);
+
+    drafts.get(0).title = "수정된 제목";
+    long affectedRowsCnt = simpleDb.upsertAll("article", drafts, "title");
+
+    String title = simpleDb.genSql()
+        .append("SELECT title FROM article WHERE id = ?", 7)
+        .selectString();
+
+    // 이미 있는 id는 ON DUPLICATE KEY UPDATE로 지정한 컬럼만 갱신됩니다.
+    assertThat(affectedRowsCnt).isPositive();
+    assertThat(title).isEqualTo("수정된 제목");
+
+    // 테이블과 컬럼 이름은 식별자 규칙을 벗어나면 SQL을 만들기 전에 거부합니다.
+    assertThatThrownBy(() -> simpleDb.insertAll("article` (id) VALUES (1); --", drafts))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> simpleDb.upsertAll("article", drafts, "title` = 1, `body"))
+        .isInstanceOf(IllegalArgumentException.class);
+
+    // 갱신할 컬럼이 하나도 없으면 잘못된 SQL을 보내지 않고 바로 거부합니다.
+    ArticleIdOnly idOnly = new ArticleIdOnly();
+    idOnly.id = 1;
+    assertThatThrownBy(() -> simpleDb.upsertAll("article", List.of(idOnly)))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("No columns to update");
+  }
+
+  static class ArticleIdOnly {
+
+    private long id;
+  }
+
+  @Test
+  @DisplayName("selectPage, scanParallel")
+  public void t035() throws Exception {
+    /*
+    == rawSql ==
+    SELECT * FROM (
+    SELECT id, title FROM article
+    ) page
+    WHERE page.`id` > 4
+    ORDER BY page.`id`
+    LIMIT 4
+    */
+    List<Map<String, Object>> firstPage = simpleDb.genSql()
+        .append("SELECT id, title FROM article")
+        .selectPage("id", null, 4);
+    Object lastId = firstPage.get(firstPage.size() - 1).get("id");
+    List<Map<String, Object>> secondPage = simpleDb.genSql()
+        .append("SELECT id, title FROM article")
+        .selectPage("id", lastId, 4);
+
+    assertThat(firstPage).extracting(row -> row.get("id")).containsExactly(1L, 2L, 3L, 4L);
+    assertThat(secondPage).extracting(row -> row.get("id")).containsExactly(5L, 6L);
+
+    // id 범위를 나눠 여러 커넥션에서 동시에 조회한 뒤, id 순서대로 합쳐 반환합니다.
+    try (Stream<Article> articles = simpleDb.genSql()
+        .append("SELECT * FROM article WHERE isBlind = ?", false)
+        .scanParallel(Article.class, "id", 3)) {
+      assertThat(articles.map(Article::getId).toList()).containsExactly(1L, 2L, 3L);
+    }
+
+    SimpleDb scanDb = new SimpleDb("localhost", "root", "lldj123414", "simpleDb__test");
+    scanDb.setAsyncExecutor(Executors.newSingleThreadExecutor());
+
+    try {
+      // 비동기 작업 안에서 호출해도, 아직 시작하지 못한 구간은 소비하는 스레드가 직접 읽습니다.
+      List<Long> ids = scanDb.supplyAsync(() -> {
+        try (Stream<Article> articles = scanDb.genSql()
+            .append("SELECT * FROM article")
+            .scanParallel(Article.class, "id", 6)) {
+          return articles.map(Article::getId).toList();
+        }
+      }).get(10, TimeUnit.SECONDS);
+
+      assertThat(ids).containsExactly(1L, 2L, 3L, 4L, 5L, 6L);
+    } finally {
+      scanDb.shutdown();
+    }
+  }
+
+  @Test
+  @DisplayName("multi")
+  public void t036() {
+    SimpleDb multiDb = new SimpleDb("localhost", "root", "lldj123414", "simpleDb__test");
+    multiDb.setAllowMultiQueries(true);
+
+    try {
+      long oldQueryCount = multiDb.getMetrics().getQueryCount().sum();
+      Pipeline pipeline = multiDb.multi();
+
+      /*
+      == rawSql ==
+      SELECT COUNT(*) FROM article WHERE isBlind = 0;
+      SELECT COUNT(*) FROM article WHERE isBlind = 1;
+      UPDATE article SET title = '제목 new' WHERE id = 1;
+      SELECT title FROM article WHERE id = 1
+      */
+      CompletableFuture<Long> openCount = pipeline.selectLong(multiDb.genSql()
+          .append("SELECT COUNT(*) FROM article WHERE isBlind = ?", false));
+      CompletableFuture<Long> blindCount = pipeline.selectLong(multiDb.genSql()
+          .append("SELECT COUNT(*) FROM article WHERE isBlind = ?", true));
+      CompletableFuture<Integer> updatedCount = pipeline.update(multiDb.genSql()
+          .append("UPDATE article SET title = ? WHERE id = ?", "제목 new", 1));
+      CompletableFuture<String> title = pipeline.selectString(multiDb.genSql()
+          .append("SELECT title FROM article WHERE id = ?", 1));
+
+      pipeline.execute();
+
+      // 네 문장이 한 번의 왕복으로 실행되고, 결과는 문장별로 전달됩니다.
+      assertThat(openCount.join()).isEqualTo(3);
+      assertThat(blindCount.join()).isEqualTo(3);
+      assertThat(updatedCount.join()).isEqualTo(1);
+      assertThat(title.join()).isEqualTo("제목 new");
+      assertThat(multiDb.getMetrics().getQueryCount().sum()).isEqualTo(oldQueryCount + 1);
+    } finally {
+      multiDb.shutdown();
+    }
+
+    // allowMultiQueries가 꺼져 있으면 같은 커넥션에서 차례로 실행됩니다.
+    Pipeline pipeline = simpleDb.multi();
+    CompletableFuture<Long> count = pipeline.selectLong(simpleDb.genSql()
+        .append("SELECT COUNT(*) FROM article"));
+    CompletableFuture<List<Long>> ids = pipeline.selectRows(simpleDb.genSql()
+        .append("SELECT id FROM article ORDER BY id LIMIT 2"), Long.class);
+    pipeline.execute();
+
+    assertThat(count.join()).isEqualTo(6);
+    assertThat(ids.join()).containsExactly(1L, 2L);
+  }
+
+  @Test
+  @DisplayName("identity map, flush on commit")
+  public void t037() {
+    simpleDb.setIdentityMapEnabled(true);
+
+    try {
+      long oldQueryCount = simpleDb.getMetrics().getQueryCount().sum();
+
+      simpleDb.inTransaction(() -> {
+        ArticleDraft draft = simpleDb.find(ArticleDraft.class, "article", 2);
+        ArticleDraft sameDraft = simpleDb.find(ArticleDraft.class, "article", 2L);
+        ArticleDraft selectedDraft = simpleDb.genSql()
+            .append("SELECT * FROM article WHERE id = ?", 2)
+            .selectRow(ArticleDraft.class);
+
+        // 같은 트랜잭션 안에서는 같은 id의 엔티티가 같은 객체로 반환됩니다.
+        assertThat(sameDraft).isSameAs(draft);
+        assertThat(selectedDraft).isSameAs(draft);
+
+        draft.title = "변경된 제목";
+      });
+
+      String title = simpleDb.genSql()
+          .append("SELECT title FROM article WHERE id = ?", 2)
+          .selectString();
+
+      // 두 번째 find와 id로 한 행을 다시 읽는 selectRow는 DB를 조회하지 않고,
+      // 변경된 필드는 커밋 시 UPDATE로 반영됩니다.
+      assertThat(title).isEqualTo("변경된 제목");
+      assertThat(simpleDb.getMetrics().getQueryCount().sum()).isEqualTo(oldQueryCount + 3);
+    } finally {
+      simpleDb.setIdentityMapEnabled(false);
+    }
+  }
+
+  interface ArticleListItem {
+
+    long getId();
+
+    String getTitle();
+
+    boolean isBlind();
+  }
+
+  static class ArticleWithLazyBody {
+
+    private long id;
+    private String title;
+    private Lazy<String> body;
+  }
+
+  @Test
+  @DisplayName("projection, lazy column")
+  public void t038() {
+    List<QueryEvent> events = new CopyOnWriteArrayList<>();
+    SimpleDbListener listener = new SimpleDbListener() {
+      @Override
+      public void onQuery(QueryEvent event) {
+        events.add(event);
+      }
+    };
+
+    simpleDb.addListener(listener);
+    try {
+      /*
+      == rawSql ==
+      SELECT `id`, `title`, `isBlind`
+      FROM article
+      WHERE id <= 2
+      ORDER BY id
+      */
+      List<ArticleListItem> items = simpleDb.genSql()
+          .append("SELECT * FROM article")
+          .append("WHERE id <= ?", 2)
+          .append("ORDER BY id")
+          .selectRows(ArticleListItem.class);
+
+      assertThat(items).extracting(ArticleListItem::getTitle).containsExactly("제목1", "제목2");
+      assertThat(items.get(0).isBlind()).isFalse();
+      // 인터페이스가 선언한 컬럼만 조회합니다.
+      assertThat(events.get(0).sql()).startsWith("SELECT `id`, `title`, `isBlind`");
+
+      ArticleWithLazyBody article = simpleDb.genSql()
+          .append("SELECT * FROM article WHERE id = ?", 1)
+          .selectRow(ArticleWithLazyBody.class);
+
+      // body는 처음 접근할 때 따로 조회합니다.
+      assertThat(article.title).isEqualTo("제목1");
+      assertThat(article.body.isLoaded()).isFalse();
+      assertThat(article.body.get()).isEqualTo("내용1");
+      assertThat(article.body.isLoaded()).isTrue();
+    } finally {
+      simpleDb.removeListener(listener);
+    }
+
+    LazyArticleDraft draft = new LazyArticleDraft();
+    draft.createdDate = LocalDateTime.now();
+    draft.modifiedDate = LocalDateTime.now();
+    draft.title = "제목 lazy";
+    draft.body = Lazy.of("내용 lazy");
+
+    // 값이 들어 있는 Lazy 컬럼도 INSERT에 포함됩니다.
+    long id = simpleDb.insertAll("article", List.of(draft)).get(0);
+
+    assertThat(simpleDb.genSql().append("SELECT body FROM article WHERE id = ?", id)
+        .selectString()).isEqualTo("내용 lazy");
+
+    simpleDb.setIdentityMapEnabled(true);
+    try {
+      simpleDb.inTransaction(() -> {
+        LazyArticleDraft loaded = simpleDb.genSql()
+            .append("SELECT * FROM article WHERE id = ?", id)
+            .selectRow(LazyArticleDraft.class);
+
+        loaded.body = Lazy.of("내용 lazy new");
+      });
+    } finally {
+      simpleDb.setIdentityMapEnabled(false);
+    }
+
+    // 트랜잭션 안에서 바꾼 Lazy 컬럼은 커밋 시 UPDATE로 반영됩니다.
+    assertThat(simpleDb.genSql().append("SELECT body FROM article WHERE id = ?", id)
+        .selectString()).isEqualTo("내용 lazy new");
+
+    List<LazyBlindArticle> unloaded = simpleDb.genSql()
+        .append("SELECT * FROM article WHERE id IN (?, ?) ORDER BY id", 4, 5)
+        .selectRows(LazyBlindArticle.class);
+    unloaded.forEach(row -> row.title = "업서트 lazy");
+    assertThat(unloaded.get(0).isBlind.get()).isTrue();
+
+    simpleDb.upsertAll("article", unloaded);
+
+    // 일부 행만 불러온 Lazy 컬럼은 일괄 쓰기에서 빠지므로, 나머지 행을 다시 조회하지 않고 기존 값도 그대로입니다.
+    assertThat(unloaded.get(1).isBlind.isLoaded()).isFalse();
+    assertThat(simpleDb.genSql().append("SELECT title, isBlind FROM article WHERE id = ?", 4)
+        .selectRow()).containsEntry("title", "업서트 lazy").containsEntry("isBlind", true);
+  }
+
+  static class LazyBlindArticle {
+
+    private long id;
+    private LocalDateTime createdDate;
+    private LocalDateTime modifiedDate;
+    private String title;
+    private String body;
+    private Lazy<Boolean> isBlind;
+  }
+
+  static class LazyArticleDraft {
+
+    private long id;
+    private LocalDateTime createdDate;
+    private LocalDateTime modifiedDate;
+    private String title;
+    private Lazy<String> body;
+  }
+
+  @Test
+  @DisplayName("NIO 백엔드")
+  public void t039() {
+    SimpleDb nioDb = new SimpleDb("localhost", "root", "lldj123414", "simpleDb__test");
+    NioBackend backend = new NioBackend();
+    nioDb.setBackend(backend);
+    nioDb.setAllowMultiQueries(true);
+
+    try {
+      // JDBC 드라이버와 같은 타입으로 변환됩니다.
+      Map<String, Object> nioRow = nioDb.genSql()
+          .append("SELECT * FROM article WHERE id = ?", 1)
+          .selectRow();
+      Map<String, Object> jdbcRow = simpleDb.genSql()
+          .append("SELECT * FROM article WHERE id = ?", 1)
+          .selectRow();
+
+      assertThat(nioRow).isEqualTo(jdbcRow);
+
+      long newId = nioDb.genSql()
+          .append("INSERT INTO article")
+          .append("SET createdDate = NOW()")
+          .append(", modifiedDate = NOW()")
+          .append(", title = ?", "it's \"new\"\\")
+          .append(", body = ?", "내용 new")
+          .insert();
+      Article article = nioDb.genSql()
+          .append("SELECT * FROM article WHERE id = ?", newId)
+          .selectRow(Article.class);
+
+      assertThat(article.getTitle()).isEqualTo("it's \"new\"\\");
+      assertThat(article.getBody()).isEqualTo("내용 new");
+
+      // 배치의 문장들은 응답을 기다리지 않고 한 번에 전송됩니다.
+      Batch batch = nioDb.genBatch("INSERT INTO article SET createdDate = NOW(), "
+          + "modifiedDate = NOW(), title = ?, body = ?");
+      batch.add("제목 batch1", "내용 batch1");
+      batch.add("제목 batch2", "내용 batch2");
+      List<Long> ids = batch.insert();
+
+      assertThat(ids).containsExactly(newId + 1, newId + 2);
+
+      nioDb.startTransaction();
+      nioDb.genSql().append("DELETE FROM article").delete();
+      nioDb.rollback();
+
+      Pipeline pipeline = nioDb.multi();
+      CompletableFuture<Long> count = pipeline.selectLong(nioDb.genSql()
+          .append("SELECT COUNT(*) FROM article"));
+      CompletableFuture<String> title = pipeline.selectString(nioDb.genSql()
+          .append("SELECT title FROM article WHERE id = ?", 2));
+      pipeline.execute();
+
+      assertThat(count.join()).isEqualTo(9);
+      assertThat(title.join()).isEqualTo("제목2");
+    } finally {
+      nioDb.shutdown();
+    }
+
+    // shutdown은 닫을 수 있는 백엔드도 함께 닫으므로, 엔진의 셀렉터 스레드와 소켓이 남지 않습니다.
+    assertThatThrownBy(() -> backend.connect(
+        "jdbc:mysql://localhost:3307/simpleDb__test", new Properties()))
+        .hasMessageContaining("Engine is closed");
+  }
+
+  @Test
+  @DisplayName("NIO 엔진, 파이프라이닝")
+  public void t040() {
+    try (NioMySqlEngine engine = new NioMySqlEngine(1)) {
+      List<WireConnection> connections = IntStream.range(0, 4)
+          .mapToObj(i -> engine.connect("localhost", 3307, "root", "lldj123414", "simpleDb__test"))
+          .map(CompletableFuture::join)
+          .toList();
+
+      // 한 스레드가 여러 커넥션을 처리하고, 각 커넥션은 응답을 기다리지 않고 쿼리를 이어서 보냅니다.
+      List<CompletableFuture<WireResult>> results = connections.stream()
+          .flatMap(conn -> IntStream.rangeClosed(1, 6)
+              .mapToObj(id -> conn.query("SELECT id, title FROM article WHERE id = " + id)))
+          .toList();
+
+      for (int i = 0; i < results.size(); i++) {
+        WireResult result = results.get(i).join();
+
+        assertThat(result.getRowCount()).isEqualTo(1);
+        assertThat(result.getObject(0, 0)).isEqualTo((long) (i % 6 + 1));
+        assertThat(result.getString(0, 1)).isEqualTo("제목%d".formatted(i % 6 + 1));
+      }
+
+      assertThat(engine.getThreadCount()).isEqualTo(1);
+      assertThat(engine.getConnectionCount()).isEqualTo(4);
+      assertThat(connections.get(0).ping().join().getAffectedRows()).isZero();
+
+      assertThatThrownBy(() -> connections.get(0).query("SELECT * FROM no_such_table").join())
+          .hasCauseInstanceOf(SQLSyntaxErrorException.class);
+      assertThat(connections.get(0).query("SELECT 1").join().getString(0, 0)).isEqualTo("1");
+    }
+  }
+
+  @Test
+  @DisplayName("TEXT, BLOB 스트리밍")
+  public void t041() {
+    simpleDb.run("DROP TABLE IF EXISTS article_file");
+    simpleDb.run("""
+        CREATE TABLE article_file (
+            id INT UNSIGNED NOT NULL AUTO_INCREMENT,
+            PRIMARY KEY(id),
+            content LONGTEXT NULL,
+            data LONGBLOB NULL
+        )
+        """);
+
+    try {
+      String content = "내용".repeat(500_000);
+      byte[] data = new byte[1_000_000];
+      Arrays.fill(data, (byte) 7);
+
+      // Reader, InputStream, ByteBuffer는 setCharacterStream, setBinaryStream으로 바인딩됩니다.
+      long id = simpleDb.genSql()
+          .append("INSERT INTO article_file")
+          .append("SET content = ?", new StringReader(content))
+          .append(", data = ?", new ByteArrayInputStream(data))
+          .insert();
+      long bufferId = simpleDb.genSql()
+          .append("INSERT INTO article_file SET data = ?", ByteBuffer.wrap(data, 0, 1000))
+          .insert();
+
+      // 컬럼 값을 String, byte[]로 만들지 않고 전달받은 sink로 바로 흘려보냅니다.
+      StringWriter contentSink = new StringWriter();
+      long charCnt = simpleDb.genSql()
+          .append("SELECT content FROM article_file WHERE id = ?", id)
+          .selectCharacterStream(contentSink);
+
+      assertThat(charCnt).isEqualTo(content.length());
+      assertThat(contentSink.toString()).isEqualTo(content);
+
+      ByteArrayOutputStream dataSink = new ByteArrayOutputStream();
+      long byteCnt = simpleDb.genSql()
+          .append("SELECT data FROM article_file WHERE id = ?", id)
+          .selectBinaryStream(dataSink);
+
+      assertThat(byteCnt).isEqualTo(data.length);
+      assertThat(dataSink.toByteArray()).isEqualTo(data);
+
+      ByteArrayOutputStream channelSink = new ByteArrayOutputStream();
+      long bufferByteCnt = simpleDb.genSql()
+          .append("SELECT data FROM article_file WHERE id = ?", bufferId)
+          .selectBinaryStream(Channels.newChannel(channelSink));
+
+      assertThat(bufferByteCnt).isEqualTo(1000);
+      assertThat(channelSink.toByteArray()).isEqualTo(Arrays.copyOf(data, 1000));
+
+      // NULL이면 -1을 반환합니다.
+      long nullCnt = simpleDb.genSql()
+          .append("SELECT content FROM article_file WHERE id = ?", bufferId)
+          .selectCharacterStream(new StringWriter());
+
+      assertThat(nullCnt).isEqualTo(-1);
+    } finally {
+      simpleDb.run("DROP TABLE IF EXISTS article_file");
+    }
+  }
+
+  @Test
+  @DisplayName("write-behind, group commit")
+  public void t042() throws InterruptedException {
+    WriteBehind writeBehind = simpleDb.openWriteBehind(new WriteBehindOptions()
+        .maxBatchSize(100)
+        .maxDelayMillis(50));
+
+    try {
+      // 쓰기는 큐에 쌓이고, 백그라운드 스레드가 여러 건을 하나의 트랜잭션으로 커밋합니다.
+      List<CompletableFuture<Void>> writes = IntStream.rangeClosed(1, 200)
+          .mapToObj(no -> writeBehind.enqueue("""
+              INSERT INTO article
+              SET createdDate = NOW(), modifiedDate = NOW(), title = ?, body = ?
+              """, "제목 event%d".formatted(no), "내용 event%d".formatted(no)))
+          .toList();
+      CompletableFuture<Void> failed = writeBehind.enqueue("UPDATE no_such_table SET x = 1");
+
+      writeBehind.flush();
+
+      assertThat(writes).allMatch(write -> write.isDone() && !write.isCompletedExceptionally());
+      // 실패한 문장만 따로 실패하고, 나머지는 커밋됩니다.
+      assertThat(failed).isCompletedExceptionally();
+      assertThat(simpleDb.genSql().append("SELECT COUNT(*) FROM article").selectLong())
+          .isEqualTo(206);
+      assertThat(writeBehind.getWriteCount().sum()).isEqualTo(200);
+      assertThat(writeBehind.getCommitCount().sum()).isLessThan(20);
+      assertThat(writeBehind.getFailedCount().sum()).isEqualTo(1);
+    } finally {
+      writeBehind.close();
+    }
+
+    WriteBehind bounded = simpleDb.openWriteBehind(new WriteBehindOptions()
+        .capacity(2)
+        .maxDelayMillis(0)
+        .enqueueTimeoutMillis(0));
+
+    simpleDb.startTransaction();
+    simpleDb.genSql().append("UPDATE article SET title = ? WHERE id = ?", "제목 lock", 1).update();
+
+    try {
+      // 행 잠금 때문에 flusher가 멈춘 동안 큐가 가득 차면 enqueue가 거절됩니다.
+      int acceptedCnt = 0;
+      boolean rejected = false;
+
+      while (!rejected && acceptedCnt < 10) {
+        try {
+          bounded.enqueue("UPDATE article SET title = ? WHERE id = ?", "제목 new", 1);
+          acceptedCnt++;
+        } catch (RejectedExecutionException e) {
+          rejected = true;
+        }
+        Thread.sleep(20);
+      }
+
+      assertThat(rejected).isTrue();
+      assertThat(acceptedCnt).isLessThanOrEqualTo(4);
+    } finally {
+      simpleDb.rollback();
+      simpleDb.close();
+    }
+
+    while (bounded.getPendingCount() > 0)
+      Thread.sleep(10);
+
+    // close는 큐에 남은 쓰기를 모두 커밋한 뒤에 반환합니다.
+    bounded.enqueue("UPDATE article SET title = ? WHERE id = ?", "제목 closed", 2);
+    bounded.close();
+
+    assertThat(simpleDb.genSql().append("SELECT title FROM article WHERE id = ?", 2)
+        .selectString()).isEqualTo("제목 closed");
+    assertThat(simpleDb.genSql().append("SELECT title FROM article WHERE id = ?", 1)
+        .selectString()).isEqualTo("제목 new");
+
+    SimpleDb failingDb = new SimpleDb("localhost", "root", "lldj123414", "simpleDb__test");
+    failingDb.setBackend((url, properties) -> {
+      Connection physical = DriverManager.getConnection(url, properties);
+
+      return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+          new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+            if (method.getName().equals("commit"))
+              throw new SQLException("Connection lost during commit");
+            try {
+              return method.invoke(physical, args);
+            } catch (InvocationTargetException e) {
+              throw e.getCause();
+            }
+          });
+    });
+
+    try (WriteBehind lostCommit = failingDb.openWriteBehind()) {
+      List<CompletableFuture<Void>> writes = List.of(
+          lostCommit.enqueue("UPDATE article SET title = ? WHERE id = ?", "제목 lost", 3),
+          lostCommit.enqueue("UPDATE article SET title = ? WHERE id = ?", "제목 lost", 4));
+
+      lostCommit.flush();
+
+      // 커밋 단계에서 실패하면 결과를 알 수 없으므로, 하나씩 다시 쓰지 않고 전부 실패시킵니다.
+      assertThat(writes).allMatch(CompletableFuture::isCompletedExceptionally);
+      assertThat(lostCommit.getFailedCount().sum()).isEqualTo(2);
+      assertThat(lostCommit.getWriteCount().sum()).isZero();
+    } finally {
+      failingDb.shutdown();
+    }
+
+    assertThat(simpleDb.genSql().append("SELECT COUNT(*) FROM article WHERE title = ?",
+        "제목 lost").selectLong()).isZero();
+  }
+
+  @Test
+  @DisplayName("warmUp, warmUpOnFirstUse")
+  public void t043() {
+    SimpleDb warmDb = new SimpleDb("localhost", "root", "lldj123414", "simpleDb__test");
+    warmDb.getConnectionPool().setMinSize(4);
+
+    try {
+      /*
+      == rawSql ==
+      SELECT *
+      FROM article
+      WHERE id = ?
+      */
+      Sql hotSql = warmDb.genSql()
+          .append("SELECT *")
+          .append("FROM article")
+          .append("WHERE id = ?");
+      WarmUpReport report = warmDb.warmUp(new WarmUpOptions()
+          .statement(hotSql)
+          .statement("SELECT COUNT(*) FROM article")
+          .entity(Article.class));
+
+      // 최소 연결 수만큼 미리 연결하고, 연결마다 hot statement를 준비해 둡니다.
+      assertThat(report.connectionCnt()).isEqualTo(4);
+      assertThat(report.statementCnt()).isEqualTo(8);
+      assertThat(report.mapperCnt()).isEqualTo(1);
+      assertThat(report.totalNanos()).isGreaterThanOrEqualTo(report.connectNanos());
+      assertThat(warmDb.getWarmUpReport()).isEqualTo(report);
+      assertThat(warmDb.getConnectionPool().getStats().idle()).isEqualTo(4);
+
+      long oldMisses = warmDb.getStatementCacheStats().getMisses();
+      long oldHits = warmDb.getStatementCacheStats().getHits();
+
+      Article article = warmDb.genSql()
+          .append("SELECT *")
+          .append("FROM article")
+          .append("WHERE id = ?", 1)
+          .selectRow(Article.class);
+
+      // 첫 요청도 새로 연결하거나 문장을 준비하지 않습니다.
+      assertThat(article.getId()).isEqualTo(1L);
+      assertThat(warmDb.getStatementCacheStats().getMisses()).isEqualTo(oldMisses);
+      assertThat(warmDb.getStatementCacheStats().getHits()).isEqualTo(oldHits + 1);
+      assertThat(warmDb.getConnectionPool().getStats().total()).isEqualTo(4);
+
+      // 문자열로 등록한 문장도 Sql 경로에서 그대로 재사용됩니다.
+      assertThat(warmDb.genSql().append("SELECT COUNT(*) FROM article").selectLong())
+          .isPositive();
+      assertThat(warmDb.getStatementCacheStats().getMisses()).isEqualTo(oldMisses);
+      assertThat(warmDb.getStatementCacheStats().getHits()).isEqualTo(oldHits + 2);
+    } finally {
+      warmDb.shutdown();
+    }
+
+    SimpleDb lazyDb = new SimpleDb("localhost", "root", "lldj123414", "simpleDb__test");
+    lazyDb.getConnectionPool().setMinSize(3);
+
+    try {
+      lazyDb.warmUpOnFirstUse(new WarmUpOptions()
+          .run("UPDATE article SET title = title WHERE id = ?")
+          .entity(Article.class));
+
+      // 첫 사용 전에는 아무 연결도 열지 않습니다.
+      assertThat(lazyDb.getWarmUpReport()).isNull();
+      assertThat(lazyDb.getConnectionPool().getStats().total()).isZero();
+
+      lazyDb.run("UPDATE article SET title = title WHERE id = ?", 1);
+
+      assertThat(lazyDb.getWarmUpReport().connectionCnt()).isEqualTo(3);
+      assertThat(lazyDb.getWarmUpReport().statementCnt()).isEqualTo(3);
+      assertThat(lazyDb.getConnectionPool().getStats().total()).isEqualTo(3);
+
+      // run()으로 등록한 문장은 SimpleDb.run이 준비하는 방식과 같아서 캐시에서 바로 꺼내 씁니다.
+      assertThat(lazyDb.getStatementCacheStats().getMisses()).isEqualTo(3);
+      assertThat(lazyDb.getStatementCacheStats().getHits()).isEqualTo(1);
+    } finally {
+      lazyDb.shutdown();
+    }
+  }
+
+  @Test
+  @DisplayName("enableConcurrencyLimit, 대기 시한과 빠른 거절, 읽기/쓰기 우선순위 레인")
+  public void t044() throws Exception {
+    SimpleDb limitDb = new SimpleDb("localhost", "root", "lldj123414", "simpleDb__test");
+    ConcurrencyLimiter limiter = limitDb.enableConcurrencyLimit(new ConcurrencyLimitOptions()
+        .initialLimit(2)
+        .minLimit(2)
+        .maxLimit(2)
+        .queueTimeoutMillis(200)
+        .maxQueueSize(1));
+
+    try {
+      List<CompletableFuture<Long>> sleeps = List.of(
+          limitDb.supplyAsync(() -> limitDb.genSql().append("SELECT SLEEP(0.5)").selectLong()),
+          limitDb.supplyAsync(() -> limitDb.genSql().append("SELECT SLEEP(0.5)").selectLong()));
+
+      while (limiter.getInFlight() < 2)
+        Thread.sleep(5);
+
+      CompletableFuture<Long> queued = limitDb.supplyAsync(
+          () -> limitDb.genSql().append("SELECT 1").selectLong());
+
+      while (limiter.getQueued() < 1)
+        Thread.sleep(5);
+
+      // 대기열이 가득 차면 기다리지 않고 바로 거절합니다.
+      assertThatThrownBy(() -> limitDb.genSql().append("SELECT 1").selectLong())
+          .isInstanceOf(RejectedExecutionException.class)
+          .hasMessageContaining("queue is full");
+
+      // 대기 시한이 지나면 대기 중인 요청도 거절됩니다.
+      assertThatThrownBy(queued::join)
+          .hasCauseInstanceOf(RejectedExecutionException.class)
+          .hasMessageContaining("timed out");
+
+      sleeps.forEach(CompletableFuture::join);
+
+      assertThat(limitDb.genSql().append("SELECT 1").selectLong()).isEqualTo(1L);
+      assertThat(limiter.getRejectedCount().sum()).isEqualTo(2);
+      assertThat(limiter.getInFlight()).isZero();
+
+      // 스트림은 실행할 때만 자리를 차지하고, 읽는 동안에는 반납합니다.
+      // 닫지 않고 버린 스트림이나 읽는 도중의 다른 조회가 자리를 막지 않습니다.
+      Stream<Article> articles = limitDb.genSql()
+          .append("SELECT * FROM article ORDER BY id")
+          .stream(Article.class);
+      assertThat(articles.iterator().next().getId()).isEqualTo(1L);
+      assertThat(limiter.getInFlight()).isZero();
+      articles.close();
+
+      List<Long> counts = new ArrayList<>();
+      limitDb.genSql().append("SELECT id FROM article ORDER BY id").forEachRow(row -> {
+        CompletableFuture<Long> nested = limitDb.supplyAsync(() -> limitDb.genSql()
+            .append("SELECT COUNT(*) FROM article WHERE id <= ?", row.get("id"))
+            .selectLong());
+        counts.add(nested.join());
+      });
+      assertThat(counts).containsExactly(1L, 2L, 3L, 4L, 5L, 6L);
+      assertThat(limiter.getInFlight()).isZero();
+    } finally {
+      limitDb.shutdown();
+    }
+
+    SimpleDb laneDb = new SimpleDb("localhost", "root", "lldj123414", "simpleDb__test");
+    ConcurrencyLimiter laneLimiter = laneDb.enableConcurrencyLimit(new ConcurrencyLimitOptions()
+        .initialLimit(4)
+        .minLimit(4)
+        .maxLimit(4)
+        .queueTimeoutMillis(5_000)
+        .writeShare(0.25));
+
+    try {
+      List<CompletableFuture<?>> futures = new ArrayList<>();
+      futures.add(laneDb.supplyAsync(
+          () -> laneDb.genSql().append("SELECT SLEEP(0.3)").selectLong()));
+      for (int i = 0; i < 3; i++) {
+        futures.add(laneDb.supplyAsync(
+            () -> laneDb.genSql().append("SELECT SLEEP(1)").selectLong()));
+      }
+
+      while (laneLimiter.getInFlight() < 4)
+        Thread.sleep(5);
+
+      for (int i = 1; i <= 3; i++) {
+        futures.add(laneDb.supplyAsync(
+            () -> laneDb.genSql().append("SELECT SLEEP(1)").selectLong()));
+
+        while (laneLimiter.getQueued() < i)
+          Thread.sleep(5);
+      }
+
+      CompletableFuture<Integer> write = laneDb.supplyAsync(() -> laneDb.genSql()
+          .append("UPDATE article SET title = title WHERE id = ?", 1)
+          .update());
+
+      while (laneLimiter.getQueued() < 4)
+        Thread.sleep(5);
+
+      // 읽기가 읽기 몫을 다 쓰고 있으면, 먼저 줄 선 읽기보다 쓰기가 먼저 들어갑니다.
+      assertThat(write.get(600, TimeUnit.MILLISECONDS)).isEqualTo(1);
+
+      while (laneLimiter.getInFlight() < 4)
+        Thread.sleep(5);
+
+      assertThat(laneLimiter.getQueued()).isEqualTo(2);
+
+      futures.forEach(CompletableFuture::join);
+      assertThat(laneLimiter.getInFlight()).isZero();
+    } finally {
+      laneDb.shutdown();
+    }
+
+    ConcurrencyLimiter adaptive = new ConcurrencyLimiter(new ConcurrencyLimitOptions()
+        .initialLimit(10)
+        .maxLimit(100));
+    long millis = 1_000_000;
+
+    adaptive.release(probe(adaptive, millis, 10), null);
+    for (int i = 0; i < 10; i++) {
+      adaptive.release(probe(adaptive, millis * 6 / 5, 10), null);
+    }
+
+    // 지연이 최소 지연과 비슷하면 한도를 늘립니다.
+    int grown = adaptive.getLimit();
+    assertThat(grown).isGreaterThan(10);
+    assertThat(adaptive.getMinRttNanos()).isBetween(millis, millis * 2);
+
+    for (int i = 0; i < 3; i++) {
+      adaptive.release(probe(adaptive, millis * 10, grown), null);
+    }
+
+    // 지연이 커지면 한도를 줄이고, 연결 시간 초과 같은 일시적 실패에는 더 크게 줄입니다.
+    int shrunk = adaptive.getLimit();
+    assertThat(shrunk).isLessThan(grown);
+
+    adaptive.release(probe(adaptive, millis, shrunk),
+        new RuntimeException(new SQLTransientConnectionException("timeout")));
+
+    int dropped = adaptive.getLimit();
+    assertThat(dropped).isLessThanOrEqualTo((int) (shrunk * 0.9));
+    assertThat(adaptive.getDroppedCount().sum()).isEqualTo(1);
+
+    // 교착 상태나 잠금 대기 실패는 과부하가 아니므로 한도를 줄이지 않습니다.
+    adaptive.release(probe(adaptive, millis, dropped),
+        new RuntimeException(new SQLTransactionRollbackException("deadlock")));
+
+    assertThat(adaptive.getLimit()).isGreaterThanOrEqualTo(dropped);
+    assertThat(adaptive.getDroppedCount().sum()).isEqualTo(1);
+  }
+
+  private static ConcurrencyLimiter.Permit probe(ConcurrencyLimiter limiter, long rttNanos,
+      int inFlight) {
+    ConcurrencyLimiter.Permit permit = limiter.acquire(QueryLane.READ);
+
+    return new ConcurrencyLimiter.Permit(limiter, permit.lane(),
+        permit.startedAt() - rttNanos, inFlight);
+  }
+}